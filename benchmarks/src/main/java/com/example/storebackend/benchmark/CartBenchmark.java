@@ -0,0 +1,116 @@
+package com.example.storebackend.benchmark;
+
+import com.example.storebackend.model.Cart;
+import com.example.storebackend.model.CartItem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart line operations on {@link Cart}, the primitive open-addressing map, against the
+ * {@code ArrayList<CartItem>} it replaced, which found lines with a stream filter and removed
+ * them with {@code removeIf}. Carts keep their size: a line added is removed again and the
+ * other way round.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    @Param({"primitiveMap", "arrayList"})
+    private String implementation;
+
+    @Param({"10", "100", "500"})
+    private int cartSize;
+
+    private Lines lines;
+    private long[] productIds;
+    private long extraProductId;
+
+    // The operations CartService performs on a cart
+    private interface Lines {
+        void add(long productId, int quantity);
+
+        boolean remove(long productId);
+    }
+
+    private static final class MapLines implements Lines {
+        private final Cart cart = new Cart();
+
+        @Override
+        public void add(long productId, int quantity) {
+            cart.add(productId, quantity);
+        }
+
+        @Override
+        public boolean remove(long productId) {
+            return cart.remove(productId);
+        }
+    }
+
+    // The list-based cart as CartService used to handle it
+    private static final class ListLines implements Lines {
+        private final List<CartItem> cart = new ArrayList<>();
+
+        @Override
+        public void add(long productId, int quantity) {
+            Optional<CartItem> existing = cart.stream()
+                    .filter(item -> item.getProductId().equals(productId))
+                    .findFirst();
+            if (existing.isPresent()) {
+                existing.get().setQuantity(existing.get().getQuantity() + quantity);
+            } else {
+                cart.add(new CartItem(productId, quantity));
+            }
+        }
+
+        @Override
+        public boolean remove(long productId) {
+            return cart.removeIf(item -> item.getProductId().equals(productId));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lines = implementation.equals("primitiveMap") ? new MapLines() : new ListLines();
+        productIds = new long[cartSize];
+        for (int i = 0; i < cartSize; i++) {
+            // Spread out like real catalog ids
+            productIds[i] = 1000L + i * 7919L;
+            lines.add(productIds[i], 1);
+        }
+        extraProductId = 1L;
+    }
+
+    // Raises the quantity of an existing line
+    @Benchmark
+    public void updateLine() {
+        lines.add(randomProductId(), 1);
+    }
+
+    // Adds a new line and removes it again
+    @Benchmark
+    public boolean addAndRemoveLine() {
+        lines.add(extraProductId, 1);
+        return lines.remove(extraProductId);
+    }
+
+    // Removes an existing line and adds it back
+    @Benchmark
+    public void removeAndAddLine() {
+        long productId = randomProductId();
+        lines.remove(productId);
+        lines.add(productId, 1);
+    }
+
+    private long randomProductId() {
+        return productIds[ThreadLocalRandom.current().nextInt(cartSize)];
+    }
+}
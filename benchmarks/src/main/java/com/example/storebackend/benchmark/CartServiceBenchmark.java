@@ -0,0 +1,67 @@
+package com.example.storebackend.benchmark;
+
+import com.example.storebackend.dto.CartLineView;
+import com.example.storebackend.model.Product;
+import com.example.storebackend.service.CartService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart operations on a cart that already holds {@code cartSize} lines, stored by the default
+ * file-backed cart store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartServiceBenchmark {
+    private static final String USERNAME = "benchmark";
+
+    @Param({"1", "10", "100"})
+    private int cartSize;
+
+    private ConfigurableApplicationContext context;
+    private CartService cartService;
+    private Long inCartProductId;
+    private Long extraProductId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreContext.start();
+        cartService = context.getBean(CartService.class);
+        List<Product> products = StoreContext.seedProducts(context, cartSize + 1);
+        for (Product product : products.subList(0, cartSize)) {
+            cartService.addItemToCart(product.getId(), 1, USERNAME);
+        }
+        inCartProductId = products.get(0).getId();
+        extraProductId = products.get(cartSize).getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    // Raises the quantity of a line already in the cart
+    @Benchmark
+    public void addItem() {
+        cartService.addItemToCart(inCartProductId, 1, USERNAME);
+    }
+
+    // Adds a new line and removes it again, so the cart keeps its size
+    @Benchmark
+    public void addAndRemoveItem() {
+        cartService.addItemToCart(extraProductId, 1, USERNAME);
+        cartService.removeItemFromCart(extraProductId, USERNAME);
+    }
+
+    @Benchmark
+    public List<CartLineView> viewCart() {
+        return cartService.getCartProducts(USERNAME);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.storebackend.benchmark;
+
+import com.example.storebackend.model.CartItem;
+import com.example.storebackend.model.Order;
+import com.example.storebackend.model.Product;
+import com.example.storebackend.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout throughput and latency of concurrent callers, each ordering a few random products of
+ * a small catalog, with one transaction per order or with group commit at several batch wait
+ * times and batch sizes. Group commit trades latency for throughput, so each setting reports
+ * both: {@code createOrder} in orders per second and {@code createOrderLatency} as a latency
+ * distribution with its p99.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class CheckoutConcurrencyBenchmark {
+    private static final int CATALOG_SIZE = 1000;
+    private static final int CART_SIZE = 5;
+
+    // "off" writes every order in its own transaction
+    @Param({"off", "1ms", "5ms"})
+    private String groupCommitMaxWait;
+
+    // Ignored when group commit is off
+    @Param({"16", "64"})
+    private int groupCommitMaxBatchSize;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private List<Product> products;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = "off".equals(groupCommitMaxWait)
+                ? StoreContext.start("store.orders.group-commit.enabled=false")
+                : StoreContext.start("store.orders.group-commit.enabled=true",
+                        "store.orders.group-commit.max-wait=" + groupCommitMaxWait,
+                        "store.orders.group-commit.max-batch-size=" + groupCommitMaxBatchSize);
+        orderService = context.getBean(OrderService.class);
+        userId = StoreContext.seedUser(context, "benchmark");
+        products = StoreContext.seedProducts(context, CATALOG_SIZE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(randomCart(), userId);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Order createOrderLatency() {
+        return orderService.createOrder(randomCart(), userId);
+    }
+
+    private List<CartItem> randomCart() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<CartItem> cart = new ArrayList<>(CART_SIZE);
+        // Distinct products, as a cart holds one line per product
+        int first = random.nextInt(CATALOG_SIZE - CART_SIZE);
+        for (int i = 0; i < CART_SIZE; i++) {
+            cart.add(new CartItem(products.get(first + i).getId(), 1));
+        }
+        return cart;
+    }
+}
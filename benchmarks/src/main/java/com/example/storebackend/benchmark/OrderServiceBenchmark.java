@@ -0,0 +1,57 @@
+package com.example.storebackend.benchmark;
+
+import com.example.storebackend.model.CartItem;
+import com.example.storebackend.model.Order;
+import com.example.storebackend.model.Product;
+import com.example.storebackend.service.OrderService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout latency by number of cart lines, with stock taken from the product rows or from
+ * in-memory reservations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int cartSize;
+
+    @Param({"false", "true"})
+    private boolean stockReservation;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private List<CartItem> cart;
+    private Long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreContext.start("store.stock.reservation.enabled=" + stockReservation);
+        orderService = context.getBean(OrderService.class);
+        userId = StoreContext.seedUser(context, "benchmark");
+        cart = new ArrayList<>(cartSize);
+        for (Product product : StoreContext.seedProducts(context, cartSize)) {
+            cart.add(new CartItem(product.getId(), 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Order createOrder() {
+        return orderService.createOrder(cart, userId);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.storebackend.benchmark;
+
+import com.example.storebackend.dto.ProductImportResult;
+import com.example.storebackend.service.ProductImportService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to import a CSV file of new products.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ProductImportBenchmark {
+
+    @Param({"10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private ProductImportService productImportService;
+    private byte[] csv;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreContext.start();
+        productImportService = context.getBean(ProductImportService.class);
+        StringBuilder builder = new StringBuilder("name,price,stock\n");
+        for (int i = 0; i < rows; i++) {
+            builder.append("Imported ").append(i).append(',').append(1.0 + i % 100).append(",10\n");
+        }
+        csv = builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public ProductImportResult importProducts() throws IOException {
+        return productImportService.importProducts(new ByteArrayInputStream(csv), ProductImportService.Format.CSV);
+    }
+}
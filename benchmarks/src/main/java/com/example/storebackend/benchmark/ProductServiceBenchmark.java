@@ -0,0 +1,46 @@
+package com.example.storebackend.benchmark;
+
+import com.example.storebackend.model.Product;
+import com.example.storebackend.service.ProductService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Product lookups by id, spread over a catalog that fits the product cache (the default
+ * {@code store.catalog.cache.maximum-size} is 10000) and one that mostly misses it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    private int catalogSize;
+
+    private ConfigurableApplicationContext context;
+    private ProductService productService;
+    private long[] productIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreContext.start();
+        productService = context.getBean(ProductService.class);
+        productIds = StoreContext.seedProducts(context, catalogSize).stream().mapToLong(Product::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Product getProductById() {
+        return productService.getProductById(productIds[ThreadLocalRandom.current().nextInt(productIds.length)]);
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.storebackend.benchmark;
+
+import com.example.storebackend.model.Product;
+import com.example.storebackend.repository.ProductRepository;
+import com.example.storebackend.service.StockReservationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Taking one unit of a few hot products, each in its own transaction as checkout does, at 1, 8
+ * and 64 threads:
+ * <ul>
+ *     <li>{@code save}: the original path, reading the product, comparing and saving it back.
+ *     It loses updates under concurrency and is kept only as the baseline.</li>
+ *     <li>{@code conditionalUpdate}: the current database path, one
+ *     {@code UPDATE ... WHERE stock >= ?}.</li>
+ *     <li>{@code reservation}: the in-memory reservation engine, flushed in the background.</li>
+ * </ul>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StockReservationBenchmark {
+    private static final int HOT_PRODUCTS = 4;
+
+    @Param({"save", "conditionalUpdate", "reservation"})
+    private String path;
+
+    private ConfigurableApplicationContext context;
+    private ProductRepository productRepository;
+    private StockReservationService stockReservationService;
+    private TransactionTemplate transactionTemplate;
+    private long[] productIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = StoreContext.start("store.stock.reservation.enabled=" + path.equals("reservation"));
+        productRepository = context.getBean(ProductRepository.class);
+        stockReservationService = context.getBean(StockReservationService.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        productIds = StoreContext.seedProducts(context, HOT_PRODUCTS).stream().mapToLong(Product::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Boolean takeStock1Thread() {
+        return takeStock();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Boolean takeStock8Threads() {
+        return takeStock();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Boolean takeStock64Threads() {
+        return takeStock();
+    }
+
+    private Boolean takeStock() {
+        long productId = productIds[ThreadLocalRandom.current().nextInt(HOT_PRODUCTS)];
+        return transactionTemplate.execute(status -> switch (path) {
+            case "save" -> {
+                Product product = productRepository.findById(productId).orElseThrow();
+                if (product.getStock() < 1) {
+                    yield false;
+                }
+                product.setStock(product.getStock() - 1);
+                productRepository.save(product);
+                yield true;
+            }
+            case "conditionalUpdate" -> productRepository.decrementStock(productId, 1) == 1;
+            default -> stockReservationService.reserve(productId, 1);
+        });
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.storebackend.benchmark;
+
+import com.example.storebackend.StoreBackendApplication;
+import com.example.storebackend.model.Product;
+import com.example.storebackend.model.Role;
+import com.example.storebackend.model.User;
+import com.example.storebackend.repository.ProductRepository;
+import com.example.storebackend.repository.UserRepository;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the application against the in-memory database of the {@code benchmark} profile and
+ * seeds the rows a benchmark needs. Each benchmark starts its own context in a trial-level setup,
+ * so settings such as stock reservation can be varied with {@code @Param}.
+ */
+final class StoreContext {
+    // Enough stock that no benchmark runs out, however many orders it places
+    static final int UNLIMITED_STOCK = 1_000_000_000;
+    private static final int SEED_BATCH_SIZE = 1000;
+
+    private StoreContext() {
+    }
+
+    static ConfigurableApplicationContext start(String... properties) {
+        String cartDirectory;
+        try {
+            cartDirectory = Files.createTempDirectory("store-carts").toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new SpringApplicationBuilder(StoreBackendApplication.class)
+                .profiles("benchmark")
+                .properties("store.cart.directory=" + cartDirectory)
+                .properties(properties)
+                .run();
+    }
+
+    static List<Product> seedProducts(ConfigurableApplicationContext context, int count) {
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        List<Product> products = new ArrayList<>(count);
+        List<Product> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < count; i++) {
+            batch.add(new Product(null, "Product " + i, 1.0 + i % 100, UNLIMITED_STOCK));
+            if (batch.size() == SEED_BATCH_SIZE || i == count - 1) {
+                products.addAll(productRepository.saveAll(batch));
+                batch.clear();
+            }
+        }
+        return products;
+    }
+
+    static Long seedUser(ConfigurableApplicationContext context, String username) {
+        return context.getBean(UserRepository.class).save(new User(username, "unused", Role.USER)).getId();
+    }
+}
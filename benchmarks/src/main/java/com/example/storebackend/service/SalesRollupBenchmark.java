@@ -0,0 +1,64 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.ProductSales;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Best seller queries over a year of daily sales, with {@code productsPerDay} of
+ * {@code catalogSize} products sold each day. Lives in the service package because the rollup
+ * is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SalesRollupBenchmark {
+    private static final int DAYS = 365;
+
+    @Param({"100000"})
+    private int catalogSize;
+
+    // 365 days of 30000 products is about 11M per-day product totals
+    @Param({"30000"})
+    private int productsPerDay;
+
+    private SalesRollup rollup;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        rollup = new SalesRollup();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int day = 0; day < DAYS; day++) {
+            List<ProductSales> sales = new ArrayList<>(productsPerDay);
+            // A contiguous run of ids, as a day has one total per product
+            long first = random.nextInt(catalogSize - productsPerDay);
+            for (int i = 0; i < productsPerDay; i++) {
+                long units = 1 + random.nextInt(10);
+                sales.add(new ProductSales(first + i, units, units * (1.0 + random.nextInt(100))));
+            }
+            rollup.add(day, sales);
+        }
+    }
+
+    @Benchmark
+    public List<ProductSales> topByRevenueOverAWeek() {
+        return rollup.top(DAYS - 7, DAYS, 100, false);
+    }
+
+    @Benchmark
+    public List<ProductSales> topByRevenueOverAYear() {
+        return rollup.top(0, DAYS, 100, false);
+    }
+
+    @Benchmark
+    public ProductSales productOverAYear() {
+        return rollup.product(1L, 0, DAYS);
+    }
+}
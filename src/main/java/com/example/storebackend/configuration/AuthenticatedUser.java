@@ -0,0 +1,24 @@
+package com.example.storebackend.configuration;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+/**
+ * Principal of an authenticated request. It carries the user's id, so controllers can act for
+ * the user without looking them up again; take it with {@code @AuthenticationPrincipal}.
+ */
+public class AuthenticatedUser extends User {
+    private final Long userId;
+
+    public AuthenticatedUser(Long userId, String username, String password,
+                             Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.storebackend.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers credentials that have passed a full check, so a client sending the same HTTP Basic
+ * credentials on every request pays for BCrypt once per {@code ttl} instead of once per request.
+ * <p>
+ * Entries are keyed on an HMAC-SHA256 of username and password under a key generated at
+ * startup; passwords themselves are never kept. A wrong password is always a miss and always
+ * goes through the full check, so guessing is no cheaper than before. Entries for a user are
+ * dropped with {@link #invalidate(String)} when their password changes, and expire after
+ * {@code ttl} in any case, which bounds how long a user removed by other means stays usable.
+ * Hits and misses are counted as {@code store.auth.cache}.
+ */
+@Slf4j
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    private final AuthenticationProvider delegate;
+    private final Cache<String, Verified> verified;
+    // Bumped by invalidate, so a check that started before a password change is not cached
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+    private final Mac prototype;
+    private final Counter hits;
+    private final Counter misses;
+
+    public CachingAuthenticationProvider(AuthenticationProvider delegate, MeterRegistry meterRegistry,
+                                         long maximumSize, Duration ttl) {
+        this.delegate = delegate;
+        this.verified = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        try {
+            this.prototype = Mac.getInstance(HMAC_ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+        this.hits = Counter.builder("store.auth.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("store.auth.cache").tag("result", "miss").register(meterRegistry);
+    }
+
+    @Override
+    public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+        String username = authentication.getName();
+        Object credentials = authentication.getCredentials();
+        if (username == null || credentials == null) {
+            return delegate.authenticate(authentication);
+        }
+
+        String key = digest(username, credentials.toString());
+        Verified entry = verified.getIfPresent(key);
+        if (entry != null) {
+            hits.increment();
+            UsernamePasswordAuthenticationToken result =
+                    UsernamePasswordAuthenticationToken.authenticated(entry.principal(), null, entry.authorities());
+            result.setDetails(authentication.getDetails());
+            return result;
+        }
+
+        misses.increment();
+        Long generation = generations.get(username);
+        // Throws for bad credentials, which are therefore never cached
+        Authentication result = delegate.authenticate(authentication);
+        if (result != null && result.isAuthenticated()) {
+            // Atomic with the bump in invalidate, which removes the entry if it runs after this
+            generations.compute(username, (name, current) -> {
+                if (Objects.equals(generation, current)) {
+                    verified.put(key, new Verified(username, result.getPrincipal(), result.getAuthorities()));
+                }
+                return current;
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public boolean supports(Class<?> authentication) {
+        return delegate.supports(authentication);
+    }
+
+    /**
+     * Forgets every verified credential of {@code username}; their next request is checked in full.
+     */
+    public void invalidate(String username) {
+        generations.merge(username, 1L, Long::sum);
+        verified.asMap().values().removeIf(entry -> entry.username().equals(username));
+        log.info("Invalidated cached credentials of user {}.", username);
+    }
+
+    private String digest(String username, String password) {
+        Mac mac;
+        try {
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException("HMAC-SHA256 cannot be cloned", e);
+        }
+        mac.update(username.getBytes(StandardCharsets.UTF_8));
+        // Separator that cannot appear in a Basic username, so "ab"+"c" and "a"+"bc" differ
+        mac.update((byte) ':');
+        return HexFormat.of().formatHex(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private record Verified(String username, Object principal, Collection<? extends GrantedAuthority> authorities) {}
+}
@@ -0,0 +1,40 @@
+package com.example.storebackend.configuration;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class MetricsConfiguration {
+
+    // Times the methods of classes annotated with @Timed
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public StatementCounter statementCounter() {
+        return new StatementCounter();
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer statementCounterCustomizer(StatementCounter statementCounter) {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, statementCounter);
+    }
+
+    // Ahead of Spring Security, so the user lookups of authentication are counted too
+    @Bean
+    public FilterRegistrationBean<StatementCountFilter> statementCountFilter(StatementCounter statementCounter,
+                                                                            MeterRegistry meterRegistry) {
+        FilterRegistrationBean<StatementCountFilter> registration =
+                new FilterRegistrationBean<>(new StatementCountFilter(statementCounter, meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
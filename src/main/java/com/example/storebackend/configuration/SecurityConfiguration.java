@@ -1,19 +1,23 @@
 package com.example.storebackend.configuration;
 
+import com.example.storebackend.service.AuthTokenService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+
+import java.time.Duration;
 
 import static org.springframework.security.config.Customizer.withDefaults;
 
@@ -23,37 +27,40 @@ import static org.springframework.security.config.Customizer.withDefaults;
 public class SecurityConfiguration {
 
     @Bean
-    public UserDetailsService userDetailsService(PasswordEncoder passwordEncoder) {
-        UserDetails user = User
-                .withUsername("user")
-                .password(passwordEncoder.encode("user_password"))
-                .roles("USER").build();
-        UserDetails admin = User
-                .withUsername("admin")
-                .password(passwordEncoder.encode("admin_password"))
-                .roles("ADMIN").build();
-        return new InMemoryUserDetailsManager(user, admin);
+    public PasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
     }
 
+    // The only AuthenticationProvider bean, so Spring Security uses it for every password check
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public CachingAuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                                PasswordEncoder passwordEncoder,
+                                                                MeterRegistry meterRegistry,
+                                                                @Value("${store.auth.cache.maximum-size:10000}") long maximumSize,
+                                                                @Value("${store.auth.cache.ttl:5m}") Duration ttl) {
+        DaoAuthenticationProvider passwordCheck = new DaoAuthenticationProvider();
+        passwordCheck.setUserDetailsService(userDetailsService);
+        passwordCheck.setPasswordEncoder(passwordEncoder);
+        return new CachingAuthenticationProvider(passwordCheck, meterRegistry, maximumSize, ttl);
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, AuthTokenService authTokenService) throws Exception {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorize -> authorize
-                        .requestMatchers("/admin/*").hasRole("ADMIN")
+                        .requestMatchers("/admin/**").hasRole("ADMIN")
                         .requestMatchers("/orders/*").hasRole("USER")
                         .requestMatchers("/products/*").hasRole("USER")
                         .requestMatchers("/cart/*").hasRole("USER")
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
+                .addFilterBefore(new TokenAuthenticationFilter(authTokenService), BasicAuthenticationFilter.class)
                 .httpBasic(withDefaults());
 
         return http.build();
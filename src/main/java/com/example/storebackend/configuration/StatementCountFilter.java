@@ -0,0 +1,51 @@
+package com.example.storebackend.configuration;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records the number of SQL statements each request runs as {@code store.db.statements}, tagged
+ * with the request's route pattern and method, so a route that starts issuing a query per row
+ * shows up as a jump in its statement count.
+ * <p>
+ * Only statements run on the request thread are counted: work handed to the group commit or
+ * payment workers, JDBC batches sent through {@code JdbcTemplate} and the streamed part of an
+ * export are not.
+ */
+public class StatementCountFilter extends OncePerRequestFilter {
+    private final StatementCounter statementCounter;
+    private final MeterRegistry meterRegistry;
+
+    public StatementCountFilter(StatementCounter statementCounter, MeterRegistry meterRegistry) {
+        this.statementCounter = statementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        statementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = statementCounter.stop();
+            // The pattern rather than the path, so /orders/1 and /orders/2 share one series
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            DistributionSummary.builder("store.db.statements")
+                    .description("SQL statements run per request")
+                    .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                    .tag("method", request.getMethod())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(statements);
+        }
+    }
+}
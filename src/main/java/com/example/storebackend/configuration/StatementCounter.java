@@ -0,0 +1,34 @@
+package com.example.storebackend.configuration;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread while a count is open.
+ * Statements prepared outside {@link #start()} and {@link #stop()} are not counted, and the SQL
+ * is passed through unchanged.
+ */
+public class StatementCounter implements StatementInspector {
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    public void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Closes the count opened by {@link #start()} and returns it; 0 if none was open.
+     */
+    public int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
@@ -1,34 +1,72 @@
 package com.example.storebackend.controller;
 
-import com.example.storebackend.model.Order;
+import com.example.storebackend.dto.OrderView;
+import com.example.storebackend.dto.ProductImportResult;
+import com.example.storebackend.dto.StockAdjustment;
+import com.example.storebackend.dto.StockAdjustmentResult;
 import com.example.storebackend.model.Product;
-import com.example.storebackend.service.OrderService;
+import com.example.storebackend.service.OrderExportService;
+import com.example.storebackend.service.OrderSummaryService;
+import com.example.storebackend.service.OrderViewService;
+import com.example.storebackend.service.ProductImportService;
 import com.example.storebackend.service.ProductService;
+import com.example.storebackend.service.StockAdjustmentService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/admin")
 public class AdminController {
-    private final OrderService orderService;
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
+    private final OrderViewService orderViewService;
     private final ProductService productService;
+    private final OrderExportService orderExportService;
+    private final ProductImportService productImportService;
+    private final StockAdjustmentService stockAdjustmentService;
+    private final OrderSummaryService orderSummaryService;
 
     @Autowired
-    public AdminController(OrderService orderService, ProductService productService) {
-        this.orderService = orderService;
+    public AdminController(OrderViewService orderViewService, ProductService productService,
+                           OrderExportService orderExportService, ProductImportService productImportService,
+                           StockAdjustmentService stockAdjustmentService, OrderSummaryService orderSummaryService) {
+        this.orderViewService = orderViewService;
         this.productService = productService;
+        this.orderExportService = orderExportService;
+        this.productImportService = productImportService;
+        this.stockAdjustmentService = stockAdjustmentService;
+        this.orderSummaryService = orderSummaryService;
     }
 
     @GetMapping("/orders")
-    public ResponseEntity<List<Order>> getOrders(@RequestParam(required = false) Long userId) {
-        List<Order> orders;
+    public ResponseEntity<List<OrderView>> getOrders(@RequestParam(required = false) Long userId,
+                                                     @RequestParam(required = false) Long after,
+                                                     @RequestParam(required = false) Integer size) {
+        List<OrderView> orders;
         try {
-            orders = (userId != null) ? orderService.getUserOrders(userId) : orderService.getOrders();
-            return new ResponseEntity<>(orders, HttpStatus.OK);
+            if (userId != null) {
+                return new ResponseEntity<>(orderViewService.getUserOrders(userId), HttpStatus.OK);
+            }
+            orders = orderViewService.getOrdersPage(after, size);
+            HttpHeaders headers = new HttpHeaders();
+            if (!orders.isEmpty()) {
+                // Pass this value back as "after" to get the next page
+                headers.add(ProductController.NEXT_CURSOR_HEADER, String.valueOf(orders.get(orders.size() - 1).id()));
+            }
+            return new ResponseEntity<>(orders, headers, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
         } catch (RuntimeException e) {
@@ -36,6 +74,36 @@ public class AdminController {
         }
     }
 
+    @GetMapping(value = "/orders/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportOrders(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        StreamingResponseBody body = outputStream -> {
+            OutputStream target = gzip ? new GZIPOutputStream(outputStream, EXPORT_BUFFER_SIZE) : outputStream;
+            try (OutputStream out = new BufferedOutputStream(target, EXPORT_BUFFER_SIZE)) {
+                orderExportService.exportOrders(out);
+            }
+        };
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_NDJSON);
+        headers.set(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            headers.set(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+
+    // Recomputes every user's order summary from the orders table
+    @PostMapping("/orders/summaries/rebuild")
+    public ResponseEntity<Long> rebuildOrderSummaries() {
+        try {
+            return new ResponseEntity<>(orderSummaryService.rebuild(), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @PostMapping("/products")
     public ResponseEntity<Product> addProduct(@RequestBody Product product) {
         try {
@@ -47,6 +115,34 @@ public class AdminController {
 
     }
 
+    // The body is read as a stream while it is imported, never buffered whole
+    @PostMapping(value = "/products/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<?> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) {
+        ProductImportService.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? ProductImportService.Format.NDJSON
+                : ProductImportService.Format.CSV;
+        try {
+            ProductImportResult result = productImportService.importProducts(body, format);
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (IOException | RuntimeException e) {
+            return new ResponseEntity<>("Error importing products", HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @PostMapping("/stock/adjustments")
+    public ResponseEntity<?> adjustStock(@RequestBody List<StockAdjustment> adjustments) {
+        try {
+            StockAdjustmentResult result = stockAdjustmentService.adjustStock(adjustments);
+            return new ResponseEntity<>(result, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
     @DeleteMapping("/products/{productId}")
     public ResponseEntity<Void> deleteProduct(@PathVariable Long productId) {
         try {
@@ -56,4 +152,35 @@ public class AdminController {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    // True if the Accept-Encoding header allows gzip: listed, or covered by "*", with a q-value above zero
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double quality = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0.0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+        }
+        Double quality = gzip != null ? gzip : any;
+        return quality != null && quality > 0;
+    }
 }
@@ -0,0 +1,77 @@
+package com.example.storebackend.controller;
+
+import com.example.storebackend.dto.ProductSales;
+import com.example.storebackend.dto.SalesReport;
+import com.example.storebackend.service.SalesAnalyticsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/admin/analytics")
+public class AnalyticsController {
+    private final SalesAnalyticsService salesAnalyticsService;
+
+    @Autowired
+    public AnalyticsController(SalesAnalyticsService salesAnalyticsService) {
+        this.salesAnalyticsService = salesAnalyticsService;
+    }
+
+    // Best sellers over whole UTC days [from, to), by revenue or units, from the in-memory rollup
+    @GetMapping("/products/top")
+    public ResponseEntity<?> getTopProducts(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                            @RequestParam(defaultValue = "10") int limit,
+                                            @RequestParam(defaultValue = "revenue") String by) {
+        try {
+            SalesAnalyticsService.Metric metric = SalesAnalyticsService.Metric.valueOf(by.toUpperCase(Locale.ROOT));
+            SalesReport report = salesAnalyticsService.getTopProducts(from, to, limit, metric);
+            return new ResponseEntity<>(report, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @GetMapping("/products/{productId}")
+    public ResponseEntity<?> getProductSales(@PathVariable Long productId,
+                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            ProductSales sales = salesAnalyticsService.getProductSales(productId, from, to);
+            return new ResponseEntity<>(sales, HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Best sellers by revenue over any [from, to), grouped by the database on each request
+    @GetMapping("/sales")
+    public ResponseEntity<?> getSales(@RequestParam Instant from,
+                                      @RequestParam Instant to,
+                                      @RequestParam(defaultValue = "100") int limit) {
+        try {
+            return new ResponseEntity<>(salesAnalyticsService.getSales(from, to, limit), HttpStatus.OK);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    // Reloads the rollup from the database, e.g. after orders were corrected by hand
+    @PostMapping("/rollup/reset")
+    public ResponseEntity<Void> resetRollup() {
+        salesAnalyticsService.reset();
+        return new ResponseEntity<>(HttpStatus.ACCEPTED);
+    }
+}
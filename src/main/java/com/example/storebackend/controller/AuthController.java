@@ -0,0 +1,54 @@
+package com.example.storebackend.controller;
+
+import com.example.storebackend.dto.PasswordChange;
+import com.example.storebackend.service.AuthTokenService;
+import com.example.storebackend.service.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/auth")
+public class AuthController {
+    private final AuthTokenService authTokenService;
+    private final UserService userService;
+
+    @Autowired
+    public AuthController(AuthTokenService authTokenService, UserService userService) {
+        this.authTokenService = authTokenService;
+        this.userService = userService;
+    }
+
+    // Exchanges a password login for a bearer token; tokens cannot be used to get new ones
+    @PostMapping("/token")
+    public ResponseEntity<?> issueToken(Authentication authentication) {
+        if (!authTokenService.isEnabled()) {
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        if (authentication.getDetails() instanceof AuthTokenService.TokenDetails) {
+            return new ResponseEntity<>("Tokens are only issued for password logins.", HttpStatus.FORBIDDEN);
+        }
+        try {
+            return new ResponseEntity<>(authTokenService.issue(authentication), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    @PutMapping("/password")
+    public ResponseEntity<?> changePassword(Authentication authentication, @RequestBody PasswordChange passwordChange) {
+        if (authentication.getDetails() instanceof AuthTokenService.TokenDetails) {
+            return new ResponseEntity<>("Changing the password requires a password login.", HttpStatus.FORBIDDEN);
+        }
+        try {
+            userService.changePassword(authentication.getName(), passwordChange.newPassword());
+            return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+        } catch (IllegalArgumentException e) {
+            return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+}
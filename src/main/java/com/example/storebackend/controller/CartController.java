@@ -1,14 +1,14 @@
 package com.example.storebackend.controller;
 
+import com.example.storebackend.dto.CartLineView;
 import com.example.storebackend.model.CartItem;
-import com.example.storebackend.model.Product;
 import com.example.storebackend.service.CartService;
-import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.security.Principal;
 import java.util.List;
 
 @RestController
@@ -22,9 +22,9 @@ public class CartController {
     }
 
     @PostMapping("/add")
-    public ResponseEntity<String> addItemToCart(@RequestBody CartItem cartItem, HttpSession session) {
+    public ResponseEntity<String> addItemToCart(@RequestBody CartItem cartItem, Principal principal) {
         try {
-            cartService.addItemToCart(cartItem.getProductId(), cartItem.getQuantity(), session);
+            cartService.addItemToCart(cartItem.getProductId(), cartItem.getQuantity(), principal.getName());
             return new ResponseEntity<>("Item added to cart", HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>("Product not found", HttpStatus.NOT_FOUND);
@@ -34,9 +34,9 @@ public class CartController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Product>> viewCart(HttpSession session) {
+    public ResponseEntity<List<CartLineView>> viewCart(Principal principal) {
         try {
-            List<Product> cartProducts = cartService.getCartProducts(session);
+            List<CartLineView> cartProducts = cartService.getCartProducts(principal.getName());
             return new ResponseEntity<>(cartProducts, HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
@@ -44,9 +44,9 @@ public class CartController {
     }
 
     @DeleteMapping("/remove")
-    public ResponseEntity<String> removeItemFromCart(@RequestParam Long productId, HttpSession session) {
+    public ResponseEntity<String> removeItemFromCart(@RequestParam Long productId, Principal principal) {
         try {
-            cartService.removeItemFromCart(productId, session);
+            cartService.removeItemFromCart(productId, principal.getName());
             return new ResponseEntity<>("Item removed from cart", HttpStatus.OK);
         } catch (Exception e) {
             return new ResponseEntity<>("Failed to remove item from cart", HttpStatus.INTERNAL_SERVER_ERROR);
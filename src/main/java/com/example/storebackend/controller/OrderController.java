@@ -1,39 +1,64 @@
 package com.example.storebackend.controller;
 
+import com.example.storebackend.configuration.AuthenticatedUser;
+import com.example.storebackend.dto.OrderSummaryView;
+import com.example.storebackend.dto.OrderView;
 import com.example.storebackend.model.CartItem;
 import com.example.storebackend.model.Order;
+import com.example.storebackend.service.IdempotencyService;
 import com.example.storebackend.service.OrderService;
-import com.example.storebackend.service.PaymentService;
+import com.example.storebackend.service.OrderSummaryService;
+import com.example.storebackend.service.OrderViewService;
+import com.example.storebackend.service.PaymentPipeline;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
 
 @RestController
 @RequestMapping("/orders")
 public class OrderController {
+    static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final OrderService orderService;
-    private final PaymentService paymentService;
+    private final IdempotencyService idempotencyService;
+    private final OrderViewService orderViewService;
+    private final OrderSummaryService orderSummaryService;
+    private final PaymentPipeline paymentPipeline;
 
     @Autowired
-    public OrderController(OrderService orderService, PaymentService paymentService) {
+    public OrderController(OrderService orderService, IdempotencyService idempotencyService,
+                           OrderViewService orderViewService, OrderSummaryService orderSummaryService,
+                           PaymentPipeline paymentPipeline) {
         this.orderService = orderService;
-        this.paymentService = paymentService;
+        this.idempotencyService = idempotencyService;
+        this.orderViewService = orderViewService;
+        this.orderSummaryService = orderSummaryService;
+        this.paymentPipeline = paymentPipeline;
     }
 
     @PostMapping
-    public ResponseEntity<?> createOrder(@RequestBody List<CartItem> cart, @RequestParam Long userId) {
+    public ResponseEntity<?> createOrder(@RequestBody List<CartItem> cart, @AuthenticationPrincipal AuthenticatedUser user,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
         try {
-            Order order = orderService.createOrder(cart, userId);
-            // Process payment for the created order
-            boolean paymentStatus = paymentService.processPayment(order);
-            if (!paymentStatus) {
-                // Handle payment failure scenario
-                return new ResponseEntity<>("Payment processing failed", HttpStatus.INTERNAL_SERVER_ERROR);
+            IdempotencyService.Checkout checkout = idempotencyService.checkout(cart, user.getUserId(), idempotencyKey);
+            Order order = checkout.order();
+            HttpHeaders headers = new HttpHeaders();
+            if (checkout.replayed()) {
+                // Same key as an earlier request: its order is already being paid for
+                headers.add(REPLAYED_HEADER, "true");
+            } else {
+                // Pay in the background; the order is returned as PENDING and clients poll its location
+                paymentPipeline.submit(order);
             }
-            return new ResponseEntity<>(order, HttpStatus.CREATED);
+            headers.setLocation(URI.create("/orders/" + order.getId()));
+            return new ResponseEntity<>(order, headers, HttpStatus.ACCEPTED);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         } catch (RuntimeException e) {
@@ -42,9 +67,13 @@ public class OrderController {
     }
 
     @GetMapping("/{orderId}")
-    public ResponseEntity<Order> getOrder(@PathVariable Long orderId) {
+    public ResponseEntity<Order> getOrder(@PathVariable Long orderId, @AuthenticationPrincipal AuthenticatedUser user) {
         try {
             Order order = orderService.getOrderById(orderId);
+            if (order.getUser() == null || !user.getUserId().equals(order.getUser().getId())) {
+                // Other users' orders are reported as missing rather than forbidden
+                return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+            }
             return new ResponseEntity<>(order, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -54,10 +83,10 @@ public class OrderController {
     }
 
     @GetMapping
-    public ResponseEntity<List<Order>> getOrders(@RequestParam Long userId) {
-        List<Order> orders;
+    public ResponseEntity<List<OrderView>> getOrders(@AuthenticationPrincipal AuthenticatedUser user) {
+        List<OrderView> orders;
         try {
-            orders = orderService.getUserOrders(userId);
+            orders = orderViewService.getUserOrders(user.getUserId());
             return new ResponseEntity<>(orders, HttpStatus.OK);
         } catch (IllegalArgumentException e) {
             return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
@@ -65,4 +94,13 @@ public class OrderController {
             return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
         }
     }
+
+    @GetMapping("/summary")
+    public ResponseEntity<OrderSummaryView> getOrderSummary(@AuthenticationPrincipal AuthenticatedUser user) {
+        try {
+            return new ResponseEntity<>(orderSummaryService.getSummary(user.getUserId()), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
 }
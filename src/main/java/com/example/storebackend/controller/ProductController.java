@@ -1,35 +1,71 @@
 package com.example.storebackend.controller;
 
+import com.example.storebackend.dto.ProductView;
 import com.example.storebackend.model.Product;
 import com.example.storebackend.service.ProductService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @RestController
 @RequestMapping("/products")
 public class ProductController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public ResponseEntity<List<Product>> getAllProducts() {
+    public ResponseEntity<List<ProductView>> getAllProducts(@RequestParam(required = false) Long after,
+                                                            @RequestParam(required = false) Integer size) {
         try {
-            List<Product> products = productService.getAllProducts();
-            return new ResponseEntity<>(products, HttpStatus.OK);
+            List<ProductView> products = productService.getProductsPage(after, size);
+            HttpHeaders headers = new HttpHeaders();
+            if (!products.isEmpty()) {
+                // Pass this value back as "after" to get the next page
+                headers.add(NEXT_CURSOR_HEADER, String.valueOf(products.get(products.size() - 1).id()));
+            }
+            return new ResponseEntity<>(products, headers, HttpStatus.OK);
         } catch (RuntimeException e) {
             return new ResponseEntity<>(null, HttpStatus.INTERNAL_SERVER_ERROR);
         }
 
     }
 
+    @GetMapping(value = "/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllProducts() {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                productService.streamAllProducts(product -> {
+                    try {
+                        generator.writeObject(product);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return new ResponseEntity<>(body, HttpStatus.OK);
+    }
+
     @GetMapping("/{productId}")
     public ResponseEntity<Product> getProduct(@PathVariable Long productId) {
         try {
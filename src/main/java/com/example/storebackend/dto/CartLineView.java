@@ -0,0 +1,14 @@
+package com.example.storebackend.dto;
+
+import com.example.storebackend.model.Product;
+
+/**
+ * One cart line as shown to the user: catalog data of the product plus the quantity in the cart.
+ */
+public record CartLineView(Long productId, String name, Double price, int quantity, Double lineTotal) {
+
+    public static CartLineView of(Product product, int quantity) {
+        return new CartLineView(product.getId(), product.getName(), product.getPrice(), quantity,
+                product.getPrice() * quantity);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.storebackend.dto;
+
+/**
+ * Order item columns together with the owning order id, as read by constructor-expression queries.
+ */
+public record OrderItemRow(Long orderId, Long productId, Integer quantity, Double price) {}
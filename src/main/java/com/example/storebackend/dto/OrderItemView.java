@@ -0,0 +1,8 @@
+package com.example.storebackend.dto;
+
+public record OrderItemView(Long productId, Integer quantity, Double price) {
+
+    public static OrderItemView of(OrderItemRow row) {
+        return new OrderItemView(row.productId(), row.quantity(), row.price());
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.storebackend.dto;
+
+import com.example.storebackend.model.OrderStatus;
+
+/**
+ * Order columns read by constructor-expression queries, without loading the entity or its user.
+ */
+public record OrderRow(Long id, Long userId, Double totalPrice, OrderStatus status) {}
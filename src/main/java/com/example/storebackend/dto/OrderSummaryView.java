@@ -0,0 +1,19 @@
+package com.example.storebackend.dto;
+
+import com.example.storebackend.model.UserOrderSummary;
+
+import java.time.Instant;
+
+/**
+ * A user's order count, lifetime spend and time of their last order.
+ */
+public record OrderSummaryView(Long userId, long orderCount, double totalSpent, Instant lastOrderAt) {
+
+    public static OrderSummaryView of(UserOrderSummary summary) {
+        return new OrderSummaryView(summary.getUserId(), summary.getOrderCount(), summary.getTotalSpent(), summary.getLastOrderAt());
+    }
+
+    public static OrderSummaryView empty(Long userId) {
+        return new OrderSummaryView(userId, 0, 0.0, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.storebackend.dto;
+
+import com.example.storebackend.model.OrderStatus;
+
+import java.util.List;
+
+/**
+ * Read-only view of an order and its items, assembled from {@link OrderRow} and {@link OrderItemRow}.
+ */
+public record OrderView(Long id, Long userId, Double totalPrice, OrderStatus status, List<OrderItemView> orderItems) {
+
+    public static OrderView of(OrderRow row, List<OrderItemView> orderItems) {
+        return new OrderView(row.id(), row.userId(), row.totalPrice(), row.status(), orderItems);
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.storebackend.dto;
+
+/**
+ * New password for the authenticated user.
+ */
+public record PasswordChange(String newPassword) {}
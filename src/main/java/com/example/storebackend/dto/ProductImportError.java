@@ -0,0 +1,6 @@
+package com.example.storebackend.dto;
+
+/**
+ * A rejected import row, identified by its line number in the uploaded file.
+ */
+public record ProductImportError(long line, String message) {}
@@ -0,0 +1,9 @@
+package com.example.storebackend.dto;
+
+import java.util.List;
+
+/**
+ * Summary of a bulk product import. Only the first errors are listed; {@code failed} counts them all.
+ */
+public record ProductImportResult(long rows, long inserted, long updated, long failed,
+                                  List<ProductImportError> errors, long elapsedMillis) {}
@@ -0,0 +1,6 @@
+package com.example.storebackend.dto;
+
+/**
+ * One product in a bulk import. Rows with an id update that product; rows without one create a new product.
+ */
+public record ProductImportRow(Long id, String name, Double price, Integer stock) {}
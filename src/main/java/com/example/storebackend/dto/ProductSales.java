@@ -0,0 +1,6 @@
+package com.example.storebackend.dto;
+
+/**
+ * Units sold and revenue of one product over a time window.
+ */
+public record ProductSales(Long productId, Long unitsSold, Double revenue) {}
@@ -0,0 +1,6 @@
+package com.example.storebackend.dto;
+
+/**
+ * Product columns read by constructor-expression queries for the catalog listings.
+ */
+public record ProductView(Long id, String name, Double price, Integer stock) {}
@@ -0,0 +1,10 @@
+package com.example.storebackend.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Product sales over {@code [from, to)}. Orders created at or after {@code dataUntil} are not
+ * counted yet; it is {@code to} when the figures come straight from the database.
+ */
+public record SalesReport(Instant from, Instant to, Instant dataUntil, List<ProductSales> products) {}
@@ -0,0 +1,6 @@
+package com.example.storebackend.dto;
+
+/**
+ * A relative stock change pushed by a warehouse: {@code delta} units are added (or, if negative, removed).
+ */
+public record StockAdjustment(Long productId, int delta) {}
@@ -0,0 +1,9 @@
+package com.example.storebackend.dto;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk stock adjustment: the resulting level of every adjusted product, and the
+ * products whose adjustment was rejected because they do not exist or would go below zero.
+ */
+public record StockAdjustmentResult(List<StockLevel> levels, List<Long> notFound, List<Long> insufficientStock) {}
@@ -0,0 +1,6 @@
+package com.example.storebackend.dto;
+
+/**
+ * Current stock of a product, read by constructor-expression queries.
+ */
+public record StockLevel(Long productId, Integer stock) {}
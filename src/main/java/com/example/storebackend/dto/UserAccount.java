@@ -0,0 +1,16 @@
+package com.example.storebackend.dto;
+
+import com.example.storebackend.model.Role;
+import com.example.storebackend.model.User;
+
+/**
+ * The parts of a user needed to authenticate them and to attach orders to them, cached between
+ * requests. Users created before roles existed are plain users.
+ */
+public record UserAccount(Long id, String username, String password, Role role) {
+
+    public static UserAccount of(User user) {
+        return new UserAccount(user.getId(), user.getUsername(), user.getPassword(),
+                user.getRole() == null ? Role.USER : user.getRole());
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.storebackend.model;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Cart lines kept as an open-addressing map from product ID to quantity, stored in two primitive
+ * arrays. Adding, updating and removing a line are O(1) and nothing is boxed. The serialized form
+ * is the line count followed by one (long, int) pair per line.
+ * <p>
+ * Product IDs must be positive; 0 marks an empty slot. Not thread-safe.
+ */
+public class Cart implements Externalizable {
+    private static final long serialVersionUID = 1L;
+    private static final long EMPTY = 0L;
+    private static final int DEFAULT_CAPACITY = 8;
+
+    private long[] productIds;
+    private int[] quantities;
+    private int size;
+
+    public Cart() {
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Adds {@code quantity} to the line of the product, creating the line if needed.
+     *
+     * @return the quantity of the line after the addition
+     */
+    public int add(long productId, int quantity) {
+        checkProductId(productId);
+        int slot = find(productId);
+        if (productIds[slot] == productId) {
+            quantities[slot] = Math.addExact(quantities[slot], quantity);
+            return quantities[slot];
+        }
+        productIds[slot] = productId;
+        quantities[slot] = quantity;
+        if (++size * 2 > productIds.length) {
+            resize(productIds.length * 2);
+        }
+        return quantity;
+    }
+
+    // Returns the quantity of the product's line, or 0 if it is not in the cart
+    public int get(long productId) {
+        checkProductId(productId);
+        int slot = find(productId);
+        return productIds[slot] == productId ? quantities[slot] : 0;
+    }
+
+    /**
+     * Removes the product's line.
+     *
+     * @return true if the product was in the cart
+     */
+    public boolean remove(long productId) {
+        checkProductId(productId);
+        int slot = find(productId);
+        if (productIds[slot] != productId) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(LineConsumer consumer) {
+        for (int slot = 0; slot < productIds.length; slot++) {
+            if (productIds[slot] != EMPTY) {
+                consumer.accept(productIds[slot], quantities[slot]);
+            }
+        }
+    }
+
+    public List<CartItem> toCartItems() {
+        List<CartItem> items = new ArrayList<>(size);
+        forEach((productId, quantity) -> items.add(new CartItem(productId, quantity)));
+        return items;
+    }
+
+    // Writes the compact form: line count, then one (productId, quantity) pair per line
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(size);
+        for (int slot = 0; slot < productIds.length; slot++) {
+            if (productIds[slot] != EMPTY) {
+                out.writeLong(productIds[slot]);
+                out.writeInt(quantities[slot]);
+            }
+        }
+    }
+
+    public static Cart readFrom(DataInput in) throws IOException {
+        Cart cart = new Cart();
+        cart.read(in);
+        return cart;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        writeTo(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        read(in);
+    }
+
+    @FunctionalInterface
+    public interface LineConsumer {
+        void accept(long productId, int quantity);
+    }
+
+    private void read(DataInput in) throws IOException {
+        int lines = in.readInt();
+        allocate(capacityFor(lines));
+        for (int i = 0; i < lines; i++) {
+            add(in.readLong(), in.readInt());
+        }
+    }
+
+    // Slot holding the product, or the empty slot where it would be inserted
+    private int find(long productId) {
+        int mask = productIds.length - 1;
+        int slot = hash(productId) & mask;
+        while (productIds[slot] != EMPTY && productIds[slot] != productId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Backward-shift deletion: moves later entries of the probe run into the gap so lookups need no tombstones
+    private void removeAt(int slot) {
+        int mask = productIds.length - 1;
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (productIds[next] != EMPTY) {
+            int ideal = hash(productIds[next]) & mask;
+            if (((next - ideal) & mask) >= ((next - gap) & mask)) {
+                productIds[gap] = productIds[next];
+                quantities[gap] = quantities[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        productIds[gap] = EMPTY;
+        quantities[gap] = 0;
+        size--;
+    }
+
+    private void resize(int capacity) {
+        long[] oldProductIds = productIds;
+        int[] oldQuantities = quantities;
+        allocate(capacity);
+        for (int slot = 0; slot < oldProductIds.length; slot++) {
+            if (oldProductIds[slot] != EMPTY) {
+                int target = find(oldProductIds[slot]);
+                productIds[target] = oldProductIds[slot];
+                quantities[target] = oldQuantities[slot];
+                size++;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        productIds = new long[capacity];
+        quantities = new int[capacity];
+        size = 0;
+    }
+
+    private static int capacityFor(int lines) {
+        int capacity = DEFAULT_CAPACITY;
+        while (lines * 2 > capacity) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private static int hash(long productId) {
+        int h = (int) (productId ^ (productId >>> 32)) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void checkProductId(long productId) {
+        if (productId <= 0) {
+            throw new IllegalArgumentException("Product ID must be positive.");
+        }
+    }
+}
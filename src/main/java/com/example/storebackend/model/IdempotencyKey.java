@@ -0,0 +1,69 @@
+package com.example.storebackend.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+/**
+ * Checkout request key and the order it created. The key is scoped to the user that sent it and
+ * is inserted in the same transaction as the order, so a key exists exactly when its order does.
+ * <p>
+ * New keys are always inserted, never merged, so saving a key that another transaction already
+ * recorded fails on the primary key instead of overwriting it.
+ */
+@Entity
+@Table(name = "idempotency_key")
+@Data
+@NoArgsConstructor
+public class IdempotencyKey implements Persistable<String> {
+    @Id
+    @Column(name = "request_key", length = 150)
+    private String requestKey;
+
+    private Long orderId;
+
+    private Instant createdAt;
+
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean isNew = true;
+
+    public IdempotencyKey(String requestKey, Long orderId, Instant createdAt) {
+        this.requestKey = requestKey;
+        this.orderId = orderId;
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return requestKey;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        isNew = false;
+    }
+}
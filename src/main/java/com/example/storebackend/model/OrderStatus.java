@@ -0,0 +1,9 @@
+package com.example.storebackend.model;
+
+public enum OrderStatus {
+    // Created and stock taken; payment not settled yet
+    PENDING,
+    PAID,
+    // Payment was declined or failed after every retry
+    PAYMENT_FAILED
+}
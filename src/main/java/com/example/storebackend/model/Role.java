@@ -0,0 +1,6 @@
+package com.example.storebackend.model;
+
+public enum Role {
+    USER,
+    ADMIN
+}
@@ -0,0 +1,30 @@
+package com.example.storebackend.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Running totals of a user's orders, kept up to date as orders are created so the account page
+ * does not have to aggregate the orders table. Can be recomputed from {@code orders} at any time.
+ */
+@Entity
+@Table(name = "user_order_summary")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserOrderSummary {
+    @Id
+    private Long userId;
+
+    private long orderCount;
+
+    private double totalSpent;
+
+    private Instant lastOrderAt;
+}
@@ -0,0 +1,24 @@
+package com.example.storebackend.repository;
+
+import com.example.storebackend.model.Cart;
+
+import java.util.function.Consumer;
+
+/**
+ * Storage for shopping carts, keyed by the authenticated user's name.
+ */
+public interface CartStore {
+
+    // Returns the user's cart, or an empty cart if there is none or it has expired
+    Cart load(String username);
+
+    /**
+     * Applies {@code mutation} to the user's cart and stores the result; an empty result removes
+     * the cart. Updates of the same user's cart are applied one at a time.
+     *
+     * @return the cart after the mutation
+     */
+    Cart update(String username, Consumer<Cart> mutation);
+
+    void delete(String username);
+}
@@ -0,0 +1,246 @@
+package com.example.storebackend.repository;
+
+import com.example.storebackend.model.Cart;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Embedded, disk-backed cart store: one small file per user in the compact {@link Cart} format.
+ * Files are replaced atomically, so readers never see a partial cart. Changes to a cart hold an
+ * in-process lock and an OS file lock on one of a fixed set of lock files under {@code .locks},
+ * so the directory can live on a volume shared by several nodes, provided the file system
+ * supports advisory locks (local disks, NFSv4; not every network file system does).
+ * A cart expires when it has not been read or written for the session timeout; expired files are
+ * ignored on read and removed under the lock, on read or by the periodic purge.
+ */
+@Slf4j
+@Repository
+public class FileCartStore implements CartStore {
+    private static final String SUFFIX = ".cart";
+    private static final int LOCK_STRIPES = 64;
+    private static final String LOCK_DIRECTORY = ".locks";
+
+    private final Path directory;
+    private final Duration ttl;
+    // ReentrantLock rather than synchronized: the lock is held across file I/O, which would pin virtual threads
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    // Guarded by the lock of the same stripe; one FileLock per JVM and file, so never locked twice at once
+    private final FileChannel[] lockFiles = new FileChannel[LOCK_STRIPES];
+
+    @Autowired
+    public FileCartStore(@Value("${store.cart.directory:${java.io.tmpdir}/store-carts}") Path directory,
+                         @Value("${server.servlet.session.timeout:30m}") Duration ttl) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.ttl = ttl;
+        Path lockDirectory = Files.createDirectories(directory.resolve(LOCK_DIRECTORY));
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+            // Never deleted: a lock file replaced while held would let two nodes lock different files
+            lockFiles[i] = FileChannel.open(lockDirectory.resolve("stripe-" + i + ".lock"),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        }
+    }
+
+    @Override
+    public Cart load(String username) {
+        Path file = fileOf(username);
+        try {
+            Cart cart = readIfLive(file);
+            if (cart == null) {
+                // Another node may be writing a fresh cart over the expired one
+                locked(username, () -> deleteIfExpired(file));
+                return new Cart();
+            }
+            try {
+                Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            } catch (NoSuchFileException e) {
+                // Emptied concurrently; the cart read is still a consistent snapshot
+            }
+            return cart;
+        } catch (IOException e) {
+            log.error("Error reading cart of user {}: {}", username, e.getMessage());
+            throw new UncheckedIOException("Error reading cart", e);
+        }
+    }
+
+    @Override
+    public Cart update(String username, Consumer<Cart> mutation) {
+        Path file = fileOf(username);
+        try {
+            return locked(username, () -> {
+                Cart cart = readIfLive(file);
+                if (cart == null) {
+                    cart = new Cart();
+                }
+                mutation.accept(cart);
+                if (cart.isEmpty()) {
+                    delete(username);
+                } else {
+                    write(username, cart);
+                }
+                return cart;
+            });
+        } catch (IOException e) {
+            log.error("Error locking cart of user {}: {}", username, e.getMessage());
+            throw new UncheckedIOException("Error updating cart", e);
+        }
+    }
+
+    @Override
+    public void delete(String username) {
+        try {
+            Files.deleteIfExists(fileOf(username));
+        } catch (IOException e) {
+            log.error("Error deleting cart of user {}: {}", username, e.getMessage());
+            throw new UncheckedIOException("Error deleting cart", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${store.cart.purge-interval-ms:600000}")
+    public void purgeExpired() {
+        int purged = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String username = usernameOf(file);
+                if (username == null) {
+                    continue;
+                }
+                try {
+                    if (isExpired(Files.getLastModifiedTime(file)) && locked(username, () -> deleteIfExpired(file))) {
+                        purged++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Removed concurrently
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error purging expired carts: {}", e.getMessage());
+        }
+        if (purged > 0) {
+            log.info("Purged {} expired carts.", purged);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (FileChannel lockFile : lockFiles) {
+            try {
+                lockFile.close();
+            } catch (IOException e) {
+                log.warn("Could not close cart lock file: {}", e.getMessage());
+            }
+        }
+    }
+
+    // The cart in the file, or null if there is none or it has expired
+    private Cart readIfLive(Path file) throws IOException {
+        try {
+            if (isExpired(Files.getLastModifiedTime(file))) {
+                return null;
+            }
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                return Cart.readFrom(in);
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // Must hold the cart's lock, so a cart written meanwhile is seen as live and kept
+    private boolean deleteIfExpired(Path file) throws IOException {
+        try {
+            return isExpired(Files.getLastModifiedTime(file)) && Files.deleteIfExists(file);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private <T> T locked(String username, LockedAction<T> action) throws IOException {
+        int stripe = Math.floorMod(username.hashCode(), LOCK_STRIPES);
+        ReentrantLock lock = locks[stripe];
+        lock.lock();
+        try (FileLock ignored = lockFiles[stripe].lock()) {
+            return action.run();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private interface LockedAction<T> {
+        T run() throws IOException;
+    }
+
+    private void write(String username, Cart cart) {
+        Path file = fileOf(username);
+        Path temp = null;
+        try {
+            // Write next to the target and rename, so readers never see a partial file
+            temp = Files.createTempFile(directory, null, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                cart.writeTo(out);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            log.error("Error writing cart of user {}: {}", username, e.getMessage());
+            throw new UncheckedIOException("Error writing cart", e);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary cart file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private boolean isExpired(FileTime lastModified) {
+        return lastModified.toInstant().plus(ttl).isBefore(Instant.now());
+    }
+
+    // Hex-encoded so any username maps to a safe file name
+    private Path fileOf(String username) {
+        return directory.resolve(HexFormat.of().formatHex(username.getBytes(StandardCharsets.UTF_8)) + SUFFIX);
+    }
+
+    // The user a cart file belongs to, or null if the name was not made by fileOf
+    private static String usernameOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            byte[] username = HexFormat.of().parseHex(name, 0, name.length() - SUFFIX.length());
+            return new String(username, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
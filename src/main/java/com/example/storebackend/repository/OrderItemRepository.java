@@ -1,7 +1,38 @@
 package com.example.storebackend.repository;
 
+import com.example.storebackend.dto.OrderItemRow;
 import com.example.storebackend.model.OrderItem;
+import com.example.storebackend.dto.ProductSales;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {}
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 
+public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
+
+    @Query("SELECT new com.example.storebackend.dto.OrderItemRow(i.order.id, i.productId, i.quantity, i.price) " +
+            "FROM OrderItem i WHERE i.order.id IN :orderIds ORDER BY i.order.id, i.id")
+    List<OrderItemRow> findRowsByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+    // Sales per product of the paid orders created in [from, to). Orders from before payment
+    // statuses have none and count as paid
+    @Query("SELECT new com.example.storebackend.dto.ProductSales(i.productId, SUM(i.quantity), SUM(i.quantity * i.price)) " +
+            "FROM OrderItem i JOIN i.order o " +
+            "WHERE o.createdAt >= :from AND o.createdAt < :to " +
+            "AND (o.status IS NULL OR o.status = com.example.storebackend.model.OrderStatus.PAID) " +
+            "GROUP BY i.productId")
+    List<ProductSales> findSalesBetween(@Param("from") Instant from, @Param("to") Instant to);
+
+    // Sales per product of the orders created in [from, to), pending and status-less ones
+    // included and failed payments excluded, best sellers by revenue first
+    @Query("SELECT new com.example.storebackend.dto.ProductSales(i.productId, SUM(i.quantity), SUM(i.quantity * i.price)) " +
+            "FROM OrderItem i JOIN i.order o " +
+            "WHERE o.createdAt >= :from AND o.createdAt < :to " +
+            "AND (o.status IS NULL OR o.status <> com.example.storebackend.model.OrderStatus.PAYMENT_FAILED) " +
+            "GROUP BY i.productId ORDER BY SUM(i.quantity * i.price) DESC, i.productId")
+    List<ProductSales> findTopSalesBetween(@Param("from") Instant from, @Param("to") Instant to, Pageable pageable);
+}
@@ -1,10 +1,51 @@
 package com.example.storebackend.repository;
 
+import com.example.storebackend.dto.OrderRow;
 import com.example.storebackend.model.Order;
+import com.example.storebackend.model.OrderStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
-    List<Order> findByUserId(Long userId);
+
+    // Order, its user and its items in a single query
+    @EntityGraph(attributePaths = {"user", "orderItems"})
+    Optional<Order> findWithItemsById(Long id);
+
+    @Query("SELECT new com.example.storebackend.dto.OrderRow(o.id, o.user.id, o.totalPrice, o.status) " +
+            "FROM Order o WHERE o.user.id = :userId ORDER BY o.id")
+    List<OrderRow> findRowsByUserId(@Param("userId") Long userId);
+
+    // Keyset page of order rows following afterId in id order
+    @Query("SELECT new com.example.storebackend.dto.OrderRow(o.id, o.user.id, o.totalPrice, o.status) " +
+            "FROM Order o WHERE o.id > :afterId ORDER BY o.id")
+    List<OrderRow> findRowsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Oldest orders in status that were created before the given instant, in id order
+    @Query("SELECT new com.example.storebackend.dto.OrderRow(o.id, o.user.id, o.totalPrice, o.status) " +
+            "FROM Order o WHERE o.status = :status AND o.createdAt < :before ORDER BY o.id")
+    List<OrderRow> findRowsByStatusCreatedBefore(@Param("status") OrderStatus status,
+                                                 @Param("before") Instant before,
+                                                 Pageable pageable);
+
+    // Moves the order to newStatus only if it is still in expectedStatus; returns the rows changed
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :newStatus WHERE o.id = :id AND o.status = :expectedStatus")
+    int updateStatus(@Param("id") Long id,
+                     @Param("expectedStatus") OrderStatus expectedStatus,
+                     @Param("newStatus") OrderStatus newStatus);
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o")
+    Instant findFirstCreatedAt();
+
+    @Query("SELECT MIN(o.createdAt) FROM Order o WHERE o.status = :status")
+    Instant findFirstCreatedAtByStatus(@Param("status") OrderStatus status);
 }
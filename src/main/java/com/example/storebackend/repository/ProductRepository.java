@@ -1,6 +1,55 @@
 package com.example.storebackend.repository;
 
+import com.example.storebackend.dto.ProductView;
+import com.example.storebackend.dto.StockLevel;
 import com.example.storebackend.model.Product;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {}
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+
+public interface ProductRepository extends JpaRepository<Product, Long> {
+
+    /**
+     * Atomically takes {@code quantity} units from the product's stock if enough are available.
+     *
+     * @return the number of updated rows: 1 if the stock was decremented, 0 if the product
+     * does not exist or does not have enough stock
+     */
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock - :quantity WHERE p.id = :productId AND p.stock >= :quantity")
+    int decrementStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    // Gives back stock taken by decrementStock
+    @Modifying
+    @Query("UPDATE Product p SET p.stock = p.stock + :quantity WHERE p.id = :productId")
+    int incrementStock(@Param("productId") Long productId, @Param("quantity") int quantity);
+
+    @Query("SELECT new com.example.storebackend.dto.StockLevel(p.id, p.stock) FROM Product p WHERE p.id IN :ids")
+    List<StockLevel> findStockLevels(@Param("ids") Collection<Long> ids);
+
+    // Keyset page: the products following afterId in id order
+    @Query("SELECT new com.example.storebackend.dto.ProductView(p.id, p.name, p.price, p.stock) " +
+            "FROM Product p WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductView> findViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Streams the whole catalog in id order, 1000 rows per round trip. With
+     * {@code useCursorFetch=true} on the MySQL URL the driver reads through a server-side cursor
+     * instead of buffering the result; other databases simply honour the fetch size. Must be
+     * consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT new com.example.storebackend.dto.ProductView(p.id, p.name, p.price, p.stock) " +
+            "FROM Product p ORDER BY p.id")
+    Stream<ProductView> streamAllViews();
+}
@@ -0,0 +1,64 @@
+package com.example.storebackend.repository;
+
+import com.example.storebackend.model.UserOrderSummary;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+public interface UserOrderSummaryRepository extends JpaRepository<UserOrderSummary, Long> {
+
+    /**
+     * Adds one order to the user's summary, creating it on the user's first order. The query
+     * space hint keeps Hibernate from flushing unrelated pending inserts before it runs.
+     */
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "user_order_summary"))
+    @Query(value = "INSERT INTO user_order_summary (user_id, order_count, total_spent, last_order_at) " +
+            "VALUES (:userId, 1, :totalPrice, :createdAt) " +
+            "ON DUPLICATE KEY UPDATE order_count = order_count + 1, " +
+            "total_spent = total_spent + VALUES(total_spent), " +
+            "last_order_at = GREATEST(COALESCE(last_order_at, VALUES(last_order_at)), VALUES(last_order_at))",
+            nativeQuery = true)
+    int recordOrder(@Param("userId") Long userId,
+                    @Param("totalPrice") double totalPrice,
+                    @Param("createdAt") Instant createdAt);
+
+    /**
+     * Takes an order whose payment failed back out of the user's summary. Runs after the order's
+     * status has changed, so the last order time is recomputed from the user's remaining orders.
+     */
+    @Modifying
+    @Query(value = "UPDATE user_order_summary SET order_count = order_count - 1, " +
+            "total_spent = total_spent - :totalPrice, " +
+            "last_order_at = (SELECT MAX(o.created_at) FROM orders o " +
+            "WHERE o.user_id = :userId AND (o.status IS NULL OR o.status <> 'PAYMENT_FAILED')) " +
+            "WHERE user_id = :userId",
+            nativeQuery = true)
+    int removeOrder(@Param("userId") Long userId, @Param("totalPrice") double totalPrice);
+
+    @Modifying
+    @Query(value = "DELETE FROM user_order_summary WHERE user_id >= :fromUserId AND user_id < :toUserId",
+            nativeQuery = true)
+    int deleteRange(@Param("fromUserId") long fromUserId, @Param("toUserId") long toUserId);
+
+    // Recomputes the summaries of users in [fromUserId, toUserId) from their orders, leaving out
+    // orders whose payment failed. Orders from before payment statuses have none and count as paid
+    @Modifying
+    @Query(value = "INSERT INTO user_order_summary (user_id, order_count, total_spent, last_order_at) " +
+            "SELECT user_id, COUNT(*), COALESCE(SUM(total_price), 0), MAX(created_at) FROM orders " +
+            "WHERE user_id >= :fromUserId AND user_id < :toUserId " +
+            "AND (status IS NULL OR status <> 'PAYMENT_FAILED') " +
+            "GROUP BY user_id",
+            nativeQuery = true)
+    int insertRange(@Param("fromUserId") long fromUserId, @Param("toUserId") long toUserId);
+
+    @Query(value = "SELECT COALESCE(MAX(user_id), 0) FROM orders", nativeQuery = true)
+    long findMaxOrderUserId();
+}
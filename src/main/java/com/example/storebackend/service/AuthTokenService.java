@@ -0,0 +1,155 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.configuration.AuthenticatedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Issues and checks signed bearer tokens, so a client can log in with its password once and then
+ * authenticate without a password check at all. A token is {@code payload.signature}, both
+ * base64url: the payload is JSON naming the user, their id and roles and the issue and expiry
+ * times, and the signature an HMAC-SHA256 of the payload under {@code store.auth.tokens.secret}.
+ * Nothing is stored per token.
+ * <p>
+ * Set the same secret on every node for tokens to be accepted everywhere; without one, a random
+ * secret is generated and tokens only work on the node that issued them until it restarts.
+ * {@link #revoke(String)} rejects the tokens a user holds, on this node only.
+ */
+@Slf4j
+@Service
+public class AuthTokenService {
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration ttl;
+    private final Mac prototype;
+    // Tokens issued to a user before this instant are rejected
+    private final Map<String, Instant> revokedBefore = new ConcurrentHashMap<>();
+
+    /**
+     * Marks an authentication made with a token rather than a password.
+     */
+    public record TokenDetails(Instant expiresAt) {}
+
+    public record IssuedToken(String token, Instant expiresAt) {}
+
+    record Claims(String sub, Long uid, List<String> roles, long iat, long exp) {}
+
+    @Autowired
+    public AuthTokenService(ObjectMapper objectMapper,
+                            @Value("${store.auth.tokens.enabled:false}") boolean enabled,
+                            @Value("${store.auth.tokens.ttl:1h}") Duration ttl,
+                            @Value("${store.auth.tokens.secret:}") String secret) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ttl = ttl;
+        byte[] key;
+        if (secret.isBlank()) {
+            key = new byte[32];
+            new SecureRandom().nextBytes(key);
+            if (enabled) {
+                log.warn("No store.auth.tokens.secret set; tokens will only be accepted by this node until it restarts.");
+            }
+        } else {
+            key = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        try {
+            this.prototype = Mac.getInstance(HMAC_ALGORITHM);
+            this.prototype.init(new SecretKeySpec(key, HMAC_ALGORITHM));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public IssuedToken issue(Authentication authentication) {
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(ttl);
+        List<String> roles = authentication.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList();
+        Long userId = authentication.getPrincipal() instanceof AuthenticatedUser user ? user.getUserId() : null;
+        try {
+            byte[] payload = objectMapper.writeValueAsBytes(
+                    new Claims(authentication.getName(), userId, roles, now.toEpochMilli(), expiresAt.toEpochMilli()));
+            String token = ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+            return new IssuedToken(token, expiresAt);
+        } catch (Exception e) {
+            log.error("Error issuing a token for user {}: {}", authentication.getName(), e.getMessage());
+            throw new RuntimeException("Error issuing token", e);
+        }
+    }
+
+    /**
+     * The authentication carried by {@code token}, or null if it is malformed, forged, expired
+     * or revoked.
+     */
+    public Authentication verify(String token) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        try {
+            byte[] payload = DECODER.decode(token.substring(0, dot));
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(sign(payload), signature)) {
+                return null;
+            }
+            Claims claims = objectMapper.readValue(payload, Claims.class);
+            Instant now = Instant.now();
+            Instant expiresAt = Instant.ofEpochMilli(claims.exp());
+            Instant revoked = revokedBefore.get(claims.sub());
+            if (!now.isBefore(expiresAt) || (revoked != null && Instant.ofEpochMilli(claims.iat()).isBefore(revoked))) {
+                return null;
+            }
+            List<SimpleGrantedAuthority> authorities = claims.roles().stream().map(SimpleGrantedAuthority::new).toList();
+            AuthenticatedUser principal = new AuthenticatedUser(claims.uid(), claims.sub(), "", authorities);
+            UsernamePasswordAuthenticationToken authentication =
+                    UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities);
+            authentication.setDetails(new TokenDetails(expiresAt));
+            return authentication;
+        } catch (Exception e) {
+            log.debug("Rejected a malformed token: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Rejects every token issued to {@code username} so far.
+     */
+    public void revoke(String username) {
+        Instant now = Instant.now();
+        revokedBefore.put(username, now);
+        // Revocations older than the token lifetime have nothing left to reject
+        revokedBefore.values().removeIf(revoked -> revoked.plus(ttl).isBefore(now));
+    }
+
+    private byte[] sign(byte[] payload) throws CloneNotSupportedException {
+        Mac mac = (Mac) prototype.clone();
+        return mac.doFinal(payload);
+    }
+}
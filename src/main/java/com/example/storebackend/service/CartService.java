@@ -1,8 +1,10 @@
 package com.example.storebackend.service;
 
+import com.example.storebackend.dto.CartLineView;
 import com.example.storebackend.model.CartItem;
 import com.example.storebackend.model.Product;
-import jakarta.servlet.http.HttpSession;
+import com.example.storebackend.repository.CartStore;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,89 +12,89 @@ import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 @Slf4j
 @Service
+@Timed(value = "store.service.cart", histogram = true)
 public class CartService {
     private final ProductService productService;
+    private final CartStore cartStore;
 
     @Autowired
-    public CartService(ProductService productService) {
+    public CartService(ProductService productService, CartStore cartStore) {
         this.productService = productService;
+        this.cartStore = cartStore;
     }
 
-    public void addItemToCart(Long productId, int quantity, HttpSession session) {
-        // Retrieve current cart or initialize a new one if it doesn't exist
-        List<CartItem> cart = (List<CartItem>) session.getAttribute("cart");
-        if (cart == null) {
-            cart = new ArrayList<>();
-        }
-
+    public void addItemToCart(Long productId, int quantity, String username) {
         // Check if the product exists in the database
         try {
             productService.getProductById(productId);
         } catch (Exception e) {
-            log.error(String.format("Product with ID %d not found. Error: %s", productId, e.getMessage()));
+            log.error("Product with ID {} not found. Error: {}", productId, e.getMessage());
             throw new IllegalArgumentException("Product not found");
         }
 
-        Optional<CartItem> existingCartItem = cart.stream()
-                .filter(item -> item.getProductId().equals(productId))
-                .findFirst();
-        // if item already exist in cart, increment its quantity.
-        if (existingCartItem.isPresent()) {
-            CartItem cartItem = existingCartItem.get();
-            cartItem.setQuantity(cartItem.getQuantity() + quantity);
-            log.info(String.format("Product with ID %d already in cart. Increased quantity to %d", productId, cartItem.getQuantity()));
-        } else {
-            // If item doesn't exist in cart, add it
-            CartItem cartItem = new CartItem();
-            cartItem.setProductId(productId);
-            cartItem.setQuantity(quantity);
-            cart.add(cartItem);
-            log.info(String.format("Added product with ID %d to cart with quantity %d", productId, quantity));
-        }
+        // if item already exist in cart, its quantity is incremented, otherwise it is added
+        cartStore.update(username, cart -> {
+            int cartQuantity = cart.add(productId, quantity);
+            // Guarded: boxing the quantities is not free on this path
+            if (log.isDebugEnabled()) {
+                if (cartQuantity != quantity) {
+                    log.debug("Product with ID {} already in cart. Increased quantity to {}", productId, cartQuantity);
+                } else {
+                    log.debug("Added product with ID {} to cart with quantity {}", productId, quantity);
+                }
+            }
+        });
+    }
 
-        // Update the session with the modified cart
-        session.setAttribute("cart", cart);
+    public List<CartItem> viewCart(String username) {
+        return cartStore.load(username).toCartItems();
     }
 
-    public List<CartItem> viewCart(HttpSession session) {
-        List<CartItem> cart = (List<CartItem>) session.getAttribute("cart");
-        if (cart == null) {
-            cart = new ArrayList<>();
-        }
-        return cart;
+    public void removeItemFromCart(Long productId, String username) {
+        cartStore.update(username, cart -> {
+            if (cart.remove(productId)) {
+                log.debug("Removed product with ID {} from cart.", productId);
+            } else {
+                log.warn("Attempted to remove product with ID {} but it is not in the cart.", productId);
+            }
+        });
     }
 
-    public void removeItemFromCart(Long productId, HttpSession session) {
-        List<CartItem> cart = (List<CartItem>) session.getAttribute("cart");
-        if (cart != null) {
-            cart.removeIf(item -> item.getProductId().equals(productId));
-            session.setAttribute("cart", cart);
-            log.info(String.format("Removed product with ID %d from cart.", productId));
-        } else {
-            log.warn(String.format("Attempted to remove product with ID %d but cart is empty or not found.", productId));
+    /**
+     * Builds the cart view with one bulk product lookup, whatever the number of lines. The catalog
+     * products are only read, so cached instances stay untouched.
+     */
+    public List<CartLineView> getCartProducts(String username) {
+        List<CartItem> cart = viewCart(username);
+        if (cart.isEmpty()) {
+            return List.of();
         }
-    }
 
-    // Utility method to get the cart from session or initialize a new one
-    public List<Product> getCartProducts(HttpSession session) {
-        List<CartItem> cart = viewCart(session);
-        List<Product> products = new ArrayList<>();
+        List<Long> productIds = new ArrayList<>(cart.size());
+        for (CartItem cartItem : cart) {
+            productIds.add(cartItem.getProductId());
+        }
+        Map<Long, Product> products;
+        try {
+            products = productService.getProductsByIds(productIds);
+        } catch (Exception e) {
+            log.error("Error fetching products for cart. Error: {}", e.getMessage());
+            throw new RuntimeException("Something went wrong");
+        }
 
+        List<CartLineView> lines = new ArrayList<>(cart.size());
         for (CartItem cartItem : cart) {
-            try {
-                Product product = productService.getProductById(cartItem.getProductId());
-                product.setStock(cartItem.getQuantity());  // Set stock as quantity in the cart for display purposes
-                products.add(product);
-            } catch (Exception e) {
-                log.error(String.format("Error fetching product with ID %d for cart. Error: %s", cartItem.getProductId(), e.getMessage()));
+            Product product = products.get(cartItem.getProductId());
+            if (product == null) {
+                log.error("Error fetching product with ID {} for cart. Error: Product not found", cartItem.getProductId());
                 throw new RuntimeException("Something went wrong");
             }
+            lines.add(CartLineView.of(product, cartItem.getQuantity()));
         }
-
-        return products;
+        return lines;
     }
 }
@@ -0,0 +1,192 @@
+package com.example.storebackend.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs units of database work in transactions. By default every unit gets its own transaction.
+ * With {@code store.orders.group-commit.enabled}, units from concurrent callers are queued and a
+ * writer thread commits them in micro-batches of up to {@code max-batch-size} units, waiting at
+ * most {@code max-wait} for a batch to fill, so many callers share one commit.
+ * <p>
+ * Each caller still gets its own result. A unit that throws {@link IllegalArgumentException} must
+ * have undone its own writes first; it fails alone and the rest of the batch commits. Any other
+ * failure rolls the batch back and every unit in it is retried in a transaction of its own.
+ */
+@Slf4j
+@Component
+public class GroupCommitExecutor {
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+    private final BlockingQueue<Unit<?>> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    @Autowired
+    public GroupCommitExecutor(PlatformTransactionManager transactionManager,
+                               @Value("${store.orders.group-commit.enabled:false}") boolean enabled,
+                               @Value("${store.orders.group-commit.max-batch-size:64}") int maxBatchSize,
+                               @Value("${store.orders.group-commit.max-wait:5ms}") Duration maxWait,
+                               @Value("${store.orders.group-commit.queue-capacity:10000}") int queueCapacity) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Group commit batch size must be at least 1.");
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (enabled) {
+            writer = new Thread(this::writeLoop, "group-commit");
+            writer.setDaemon(true);
+            writer.start();
+        } else {
+            writer = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Runs {@code work} in a transaction and returns its result once that transaction has committed.
+     * The work may run more than once, so it must build its entities afresh on every call.
+     */
+    public <T> T execute(Supplier<T> work) {
+        if (!enabled) {
+            return transactionTemplate.execute(status -> work.get());
+        }
+        if (!running) {
+            throw new IllegalStateException("Group commit is shutting down.");
+        }
+        Unit<T> unit = new Unit<>(work);
+        try {
+            queue.put(unit);
+            return unit.result.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for group commit.", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void writeLoop() {
+        List<Unit<?>> batch = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Unit<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Unit<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    commit(batch);
+                }
+            } catch (Throwable e) {
+                log.error("Group commit writer failed: {}", e.getMessage());
+                batch.forEach(unit -> unit.result.completeExceptionally(e));
+            }
+            batch.clear();
+        }
+        List<Unit<?>> late = new ArrayList<>();
+        queue.drainTo(late);
+        late.forEach(unit -> unit.result.completeExceptionally(new IllegalStateException("Group commit is shutting down.")));
+    }
+
+    void commit(List<Unit<?>> batch) {
+        int size = batch.size();
+        Object[] results = new Object[size];
+        RuntimeException[] failures = new RuntimeException[size];
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < size; i++) {
+                    try {
+                        results[i] = batch.get(i).work.get();
+                    } catch (IllegalArgumentException e) {
+                        failures[i] = e;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // Nothing from this batch was committed; give every unit a transaction of its own
+            log.warn("Group commit of {} units failed, retrying them one by one: {}", size, e.getMessage());
+            for (int i = 0; i < size; i++) {
+                Supplier<?> work = batch.get(i).work;
+                try {
+                    results[i] = transactionTemplate.execute(status -> work.get());
+                    failures[i] = null;
+                } catch (RuntimeException unitFailure) {
+                    failures[i] = unitFailure;
+                }
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            batch.get(i).complete(results[i], failures[i]);
+        }
+        log.debug("Group commit of {} units.", size);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // The writer notices within one poll interval, commits what is queued and exits
+        running = false;
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(30));
+        }
+    }
+
+    static final class Unit<T> {
+        private final Supplier<T> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Unit(Supplier<T> work) {
+            this.work = work;
+        }
+
+        CompletableFuture<T> result() {
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object value, RuntimeException failure) {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete((T) value);
+            }
+        }
+    }
+}
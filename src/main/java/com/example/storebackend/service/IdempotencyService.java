@@ -0,0 +1,133 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.model.CartItem;
+import com.example.storebackend.model.IdempotencyKey;
+import com.example.storebackend.model.Order;
+import com.example.storebackend.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Deduplicates checkout requests that carry an {@code Idempotency-Key}. The first request with a
+ * key creates the order and records the key in the same transaction; a repeat within the
+ * retention period (until the key is purged) returns the original order without taking stock or
+ * paying again.
+ * <p>
+ * The key is inserted without an explicit flush, so a key that a concurrent request recorded
+ * first is only rejected when the checkout transaction commits. With group commit that is the
+ * batch commit: the failed batch is retried one order per transaction, the duplicate's own commit
+ * fails with {@link DataIntegrityViolationException} and rolls back its order and stock, and the
+ * request replays the order that won. The other orders of the batch commit on their retry.
+ * <p>
+ * Recent keys are held in a bounded in-memory cache in front of the {@code idempotency_key}
+ * table, and lookups are counted as {@code store.checkout.idempotency} with a {@code result} tag
+ * of {@code hit} or {@code miss}.
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+    static final int MAX_KEY_LENGTH = 100;
+
+    private final OrderService orderService;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final Cache<String, Long> orderIdsByKey;
+    private final Duration retention;
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * Outcome of a checkout; {@code replayed} is true when the order was created by an earlier request.
+     */
+    public record Checkout(Order order, boolean replayed) {}
+
+    @Autowired
+    public IdempotencyService(OrderService orderService,
+                              IdempotencyKeyRepository idempotencyKeyRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${store.checkout.idempotency.cache.maximum-size:10000}") long maximumSize,
+                              @Value("${store.checkout.idempotency.retention:24h}") Duration retention) {
+        this.orderService = orderService;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.retention = retention;
+        this.orderIdsByKey = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(retention)
+                .build();
+        this.hits = Counter.builder("store.checkout.idempotency").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("store.checkout.idempotency").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Creates the order, or returns the one created earlier with the same key by the same user.
+     * Without a key every call creates a new order.
+     */
+    public Checkout checkout(List<CartItem> cart, Long userId, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return new Checkout(orderService.createOrder(cart, userId), false);
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters.");
+        }
+        String requestKey = userId + ":" + idempotencyKey;
+
+        Optional<Long> orderId = findOrderId(requestKey);
+        if (orderId.isPresent()) {
+            return replay(requestKey, orderId.get());
+        }
+        misses.increment();
+        try {
+            Order order = orderService.createOrder(cart, userId, requestKey);
+            orderIdsByKey.put(requestKey, order.getId());
+            return new Checkout(order, false);
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request with the same key committed first; our order was rolled back
+            Long winner = findOrderId(requestKey).orElseThrow(() -> {
+                log.error("Error while creating order: {}", e.getMessage());
+                return new RuntimeException("Error while creating order", e);
+            });
+            return replay(requestKey, winner);
+        }
+    }
+
+    private Optional<Long> findOrderId(String requestKey) {
+        Long cached = orderIdsByKey.getIfPresent(requestKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<Long> stored = idempotencyKeyRepository.findById(requestKey).map(IdempotencyKey::getOrderId);
+        stored.ifPresent(id -> orderIdsByKey.put(requestKey, id));
+        return stored;
+    }
+
+    private Checkout replay(String requestKey, Long orderId) {
+        hits.increment();
+        log.info("Replaying order ID {} for request key {}.", orderId, requestKey);
+        return new Checkout(orderService.getOrderById(orderId), true);
+    }
+
+    /**
+     * Deletes keys older than the retention period; requests reusing them create new orders.
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${store.checkout.idempotency.purge-interval-ms:3600000}")
+    public void purgeExpired() {
+        int purged = idempotencyKeyRepository.deleteCreatedBefore(Instant.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} expired idempotency keys.", purged);
+        }
+    }
+}
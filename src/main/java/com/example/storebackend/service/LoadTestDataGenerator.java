@@ -0,0 +1,185 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.model.OrderStatus;
+import com.example.storebackend.model.Role;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Fills an empty database with synthetic products, users and orders for load tests, with plain
+ * JDBC batches rather than entities. Runs at startup with the {@code loadtest} profile, before
+ * the application reports itself ready.
+ * <p>
+ * Users are {@code loaduser1} to {@code loaduserN}, all with the password
+ * {@code store.loadtest.password}; it is hashed once and the hash shared, since one BCrypt hash
+ * per user would dominate the seeding time. Product {@code i} has id {@code i}, so clients can
+ * pick products without listing them. Rows get explicit ids, after which the id sequences are
+ * moved past them for the rows the application creates: real sequences on H2, the table-backed
+ * ones Hibernate uses on MySQL when the profile is pointed at a MySQL schema.
+ */
+@Slf4j
+@Component
+@Profile("loadtest")
+public class LoadTestDataGenerator implements ApplicationRunner {
+    private static final String PRODUCT_SQL = "INSERT INTO product (id, name, price, stock) VALUES (?, ?, ?, ?)";
+    private static final String USER_SQL = "INSERT INTO `user` (id, username, password, role) VALUES (?, ?, ?, ?)";
+    private static final String ORDER_SQL =
+            "INSERT INTO orders (id, user_id, total_price, status, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final String ORDER_ITEM_SQL =
+            "INSERT INTO order_item (id, order_id, product_id, quantity, price) VALUES (?, ?, ?, ?, ?)";
+    // Enough stock that checkouts during a run do not sell out
+    private static final int STOCK = 1_000_000_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PasswordEncoder passwordEncoder;
+    private final OrderSummaryService orderSummaryService;
+    private final int products;
+    private final int users;
+    private final int orders;
+    private final int itemsPerOrder;
+    private final Duration orderHistory;
+    private final String password;
+    private final int batchSize;
+
+    @Autowired
+    public LoadTestDataGenerator(JdbcTemplate jdbcTemplate, PasswordEncoder passwordEncoder,
+                                 OrderSummaryService orderSummaryService,
+                                 @Value("${store.loadtest.products:10000}") int products,
+                                 @Value("${store.loadtest.users:1000}") int users,
+                                 @Value("${store.loadtest.orders:100000}") int orders,
+                                 @Value("${store.loadtest.items-per-order:3}") int itemsPerOrder,
+                                 @Value("${store.loadtest.order-history:90d}") Duration orderHistory,
+                                 @Value("${store.loadtest.password:loadtest_password}") String password,
+                                 @Value("${store.loadtest.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.passwordEncoder = passwordEncoder;
+        this.orderSummaryService = orderSummaryService;
+        this.products = products;
+        this.users = users;
+        this.orders = orders;
+        this.itemsPerOrder = itemsPerOrder;
+        this.orderHistory = orderHistory;
+        this.password = password;
+        this.batchSize = batchSize;
+    }
+
+    // Price of product id; checkout reads it from the product row, the generator computes it
+    static double priceOf(long productId) {
+        return 1.0 + productId % 100;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM product", Long.class);
+        if (existing != null && existing > 0) {
+            log.warn("The database already holds products; skipping load test data.");
+            return;
+        }
+        long start = System.nanoTime();
+        insertProducts();
+        insertUsers();
+        long orderItems = insertOrders();
+        boolean tableSequences = usesTableSequences();
+        restartSequence("product_seq", products + 1L, tableSequences);
+        restartSequence("user_seq", users + 1L, tableSequences);
+        restartSequence("orders_seq", orders + 1L, tableSequences);
+        restartSequence("order_item_seq", orderItems + 1, tableSequences);
+        orderSummaryService.rebuild();
+        log.info("Generated {} products, {} users, {} orders and {} order items in {} ms.",
+                products, users, orders, orderItems, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    private void insertProducts() {
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (long id = 1; id <= products; id++) {
+            batch.add(new Object[]{id, "Product " + id, priceOf(id), STOCK});
+            if (batch.size() == batchSize) {
+                flush(PRODUCT_SQL, batch);
+            }
+        }
+        flush(PRODUCT_SQL, batch);
+    }
+
+    private void insertUsers() {
+        String hash = passwordEncoder.encode(password);
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (long id = 1; id <= users; id++) {
+            batch.add(new Object[]{id, "loaduser" + id, hash, Role.USER.name()});
+            if (batch.size() == batchSize) {
+                flush(USER_SQL, batch);
+            }
+        }
+        flush(USER_SQL, batch);
+    }
+
+    // Orders spread evenly over the order history, each with distinct random products
+    private long insertOrders() {
+        if (users == 0 || products == 0) {
+            return 0;
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        Instant now = Instant.now();
+        long historyMillis = orderHistory.toMillis();
+        List<Object[]> orderBatch = new ArrayList<>(batchSize);
+        List<Object[]> itemBatch = new ArrayList<>(batchSize * itemsPerOrder);
+        long itemId = 0;
+        for (long id = 1; id <= orders; id++) {
+            long firstProduct = 1 + random.nextInt(Math.max(products - itemsPerOrder, 1));
+            double total = 0.0;
+            for (int i = 0; i < itemsPerOrder && i < products; i++) {
+                long productId = firstProduct + i;
+                int quantity = 1 + random.nextInt(3);
+                total += quantity * priceOf(productId);
+                itemBatch.add(new Object[]{++itemId, id, productId, quantity, priceOf(productId)});
+            }
+            Instant createdAt = now.minusMillis(historyMillis - historyMillis * id / orders);
+            OrderStatus status = random.nextInt(50) == 0 ? OrderStatus.PAYMENT_FAILED : OrderStatus.PAID;
+            orderBatch.add(new Object[]{id, 1 + random.nextInt(users), total, status.name(), Timestamp.from(createdAt)});
+            if (orderBatch.size() == batchSize) {
+                flush(ORDER_SQL, orderBatch);
+                flush(ORDER_ITEM_SQL, itemBatch);
+            }
+        }
+        flush(ORDER_SQL, orderBatch);
+        flush(ORDER_ITEM_SQL, itemBatch);
+        return itemId;
+    }
+
+    private void flush(String sql, List<Object[]> batch) {
+        if (!batch.isEmpty()) {
+            jdbcTemplate.batchUpdate(sql, batch);
+            batch.clear();
+        }
+    }
+
+    // Hibernate hands out ids from these sequences in pooled-lo blocks starting at their next value
+    private void restartSequence(String sequence, long nextId, boolean tableSequence) {
+        if (tableSequence) {
+            jdbcTemplate.update("UPDATE " + sequence + " SET next_val = ?", nextId);
+        } else {
+            jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " RESTART WITH " + nextId);
+        }
+    }
+
+    // MySQL has no sequences, so Hibernate emulates them with one-row tables
+    private boolean usesTableSequences() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        return "MySQL".equalsIgnoreCase(database);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.OrderRow;
+import com.example.storebackend.dto.OrderView;
+import com.example.storebackend.repository.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Writes every order as newline-delimited JSON. Orders are read forward by id in fixed-size
+ * batches, and the items of each batch are fetched with one query, so memory is bounded by the
+ * batch size and no order triggers lazy loads of its user or items.
+ */
+@Slf4j
+@Service
+public class OrderExportService {
+    private static final int NEWLINE = '\n';
+
+    private final OrderRepository orderRepository;
+    private final OrderViewService orderViewService;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    @Autowired
+    public OrderExportService(OrderRepository orderRepository,
+                              OrderViewService orderViewService,
+                              ObjectMapper objectMapper,
+                              @Value("${store.orders.export.batch-size:1000}") int batchSize) {
+        this.orderRepository = orderRepository;
+        this.orderViewService = orderViewService;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Writes one JSON line per order to {@code outputStream}, in id order.
+     *
+     * @return the number of exported orders
+     */
+    public long exportOrders(OutputStream outputStream) throws IOException {
+        long exported = 0;
+        long afterId = 0;
+        List<OrderRow> rows;
+        do {
+            rows = orderRepository.findRowsAfter(afterId, PageRequest.of(0, batchSize));
+            if (rows.isEmpty()) {
+                break;
+            }
+            for (OrderView order : orderViewService.withItems(rows)) {
+                outputStream.write(objectMapper.writeValueAsBytes(order));
+                outputStream.write(NEWLINE);
+            }
+            afterId = rows.get(rows.size() - 1).id();
+            exported += rows.size();
+        } while (rows.size() == batchSize);
+
+        outputStream.flush();
+        log.info("Exported {} orders.", exported);
+        return exported;
+    }
+}
@@ -1,119 +1,272 @@
 package com.example.storebackend.service;
 
+import com.example.storebackend.dto.OrderRow;
+import com.example.storebackend.dto.UserAccount;
 import com.example.storebackend.model.*;
+import com.example.storebackend.repository.IdempotencyKeyRepository;
 import com.example.storebackend.repository.OrderRepository;
 import com.example.storebackend.repository.ProductRepository;
-import com.example.storebackend.repository.UserRepository;
+import com.example.storebackend.repository.UserOrderSummaryRepository;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Slf4j
 @Service
+@Timed(value = "store.service.orders", histogram = true)
 public class OrderService {
     private final OrderRepository orderRepository;
     private final ProductRepository productRepository;
-    private final UserRepository userRepository;
+    private final UserAccountCache userAccountCache;
+    private final StockReservationService stockReservationService;
+    private final ProductCatalogCache catalogCache;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final GroupCommitExecutor groupCommitExecutor;
+    private final UserOrderSummaryRepository userOrderSummaryRepository;
 
     @Autowired
-    public OrderService(OrderRepository orderRepository, ProductRepository productRepository, UserRepository userRepository) {
+    public OrderService(OrderRepository orderRepository, ProductRepository productRepository, UserAccountCache userAccountCache,
+                        StockReservationService stockReservationService, ProductCatalogCache catalogCache,
+                        IdempotencyKeyRepository idempotencyKeyRepository, GroupCommitExecutor groupCommitExecutor,
+                        UserOrderSummaryRepository userOrderSummaryRepository) {
         this.orderRepository = orderRepository;
         this.productRepository = productRepository;
-        this.userRepository = userRepository;
+        this.userAccountCache = userAccountCache;
+        this.stockReservationService = stockReservationService;
+        this.catalogCache = catalogCache;
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.groupCommitExecutor = groupCommitExecutor;
+        this.userOrderSummaryRepository = userOrderSummaryRepository;
     }
 
     public Order createOrder(List<CartItem> cart, Long userId) {
+        return createOrder(cart, userId, null);
+    }
+
+    /**
+     * Creates the order and, if {@code requestKey} is not null, records it against the order in
+     * the same transaction. A key that is already recorded makes the whole order roll back with a
+     * {@link DataIntegrityViolationException}; see {@link IdempotencyService}.
+     * <p>
+     * The cart is validated outside any transaction. Only the stock updates and inserts run in one,
+     * which {@link GroupCommitExecutor} may share with other checkouts.
+     */
+    public Order createOrder(List<CartItem> cart, Long userId, String requestKey) {
         try {
-            Order order = new Order();
-            double totalPrice = 0.0;
-            List<OrderItem> orderItems = new ArrayList<>();
-            User user = userRepository.findById(userId).orElseThrow(() -> {
-                log.error(String.format("User with ID %d not found.", userId));
-                return new IllegalArgumentException("User not found.");
-            });
+            // Usually cached already by the authentication of this request
+            UserAccount account = userAccountCache.getById(userId);
+            if (account == null) {
+                log.error("User with ID {} not found.", userId);
+                throw new IllegalArgumentException("User not found.");
+            }
+            User user = new User(account.username(), null, account.role());
+            user.setId(account.id());
+
+            // Load every product in the cart with a single query instead of one lookup per line
+            Map<Long, Product> products = loadCartProducts(cart);
 
+            double totalPrice = 0.0;
             for (CartItem cartItem : cart) {
-                Product requestedProduct = productRepository.findById(cartItem.getProductId()).orElseThrow(() -> {
-                    log.error(String.format("Product with ID %d not found.", cartItem.getProductId()));
-                    return new IllegalArgumentException("Product not found.");
-                });
-
-                if (cartItem.getQuantity() > requestedProduct.getStock()) {
-                    String message = String.format("Not enough stock for product %s", requestedProduct.getName());
-                    log.error(message);
-                    throw new IllegalArgumentException(message);
+                Product requestedProduct = products.get(cartItem.getProductId());
+                if (requestedProduct == null) {
+                    log.error("Product with ID {} not found.", cartItem.getProductId());
+                    throw new IllegalArgumentException("Product not found.");
+                }
+                if (cartItem.getQuantity() <= 0) {
+                    throw new IllegalArgumentException("Quantity must be positive.");
                 }
-
                 totalPrice += cartItem.getQuantity() * requestedProduct.getPrice();
-                // Update product stock
-                requestedProduct.setStock(requestedProduct.getStock() - cartItem.getQuantity());
-                productRepository.save(requestedProduct);
-                // Create and add order item
-                OrderItem orderItem = OrderItem.builder()
-                        .order(order)
-                        .productId(requestedProduct.getId())
-                        .quantity(cartItem.getQuantity())
-                        .price(requestedProduct.getPrice())
-                        .build();
-                orderItems.add(orderItem);
             }
 
-            // Create and save new order
-            order.setUser(user);
-            order.setOrderItems(orderItems);
-            order.setTotalPrice(totalPrice);
-            orderRepository.save(order);
-            log.info(String.format("Order for user ID %d created successfully with total price %.2f.", userId, totalPrice));
+            PendingOrder pending = new PendingOrder(user, cart, products, totalPrice, requestKey);
+            Order order = groupCommitExecutor.execute(() -> persistOrder(pending));
+            if (log.isDebugEnabled()) {
+                log.debug("Order for user ID {} created successfully with total price {}.", userId, totalPrice);
+            }
 
             return order;
         } catch (IllegalArgumentException e) {
             throw e; // Re-throw validation errors
+        } catch (DataIntegrityViolationException e) {
+            throw e; // Re-throw duplicate request keys
         } catch (Exception e) {
-            log.error(String.format("Error while creating order: %s", e.getMessage()));
+            log.error("Error while creating order: {}", e.getMessage());
 
             throw new RuntimeException("Error while creating order", e);
         }
     }
 
-    public Order getOrderById(Long orderId) {
+    // Runs inside the checkout transaction; may run again after a failed group commit
+    private Order persistOrder(PendingOrder pending) {
+        takeStock(pending);
+        catalogCache.invalidateAll(pending.products().keySet());
+
+        // Create and save new order
+        Order order = new Order();
+        List<OrderItem> orderItems = new ArrayList<>();
+        for (CartItem cartItem : pending.cart()) {
+            Product product = pending.products().get(cartItem.getProductId());
+            orderItems.add(OrderItem.builder()
+                    .order(order)
+                    .productId(product.getId())
+                    .quantity(cartItem.getQuantity())
+                    .price(product.getPrice())
+                    .build());
+        }
+        order.setUser(pending.user());
+        order.setOrderItems(orderItems);
+        order.setTotalPrice(pending.totalPrice());
+        order.setStatus(OrderStatus.PENDING);
+        order.setCreatedAt(Instant.now());
+        orderRepository.save(order);
+        userOrderSummaryRepository.recordOrder(pending.user().getId(), pending.totalPrice(), order.getCreatedAt());
+        if (pending.requestKey() != null) {
+            idempotencyKeyRepository.save(new IdempotencyKey(pending.requestKey(), order.getId(), order.getCreatedAt()));
+        }
+        return order;
+    }
+
+    private Map<Long, Product> loadCartProducts(List<CartItem> cart) {
+        Set<Long> productIds = new HashSet<>();
+        for (CartItem cartItem : cart) {
+            productIds.add(cartItem.getProductId());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(productIds)) {
+            products.put(product.getId(), product);
+        }
+        return products;
+    }
+
+    /**
+     * Takes the stock once per product, or none at all: when a line cannot be served, the stock
+     * already taken for this order is given back before throwing, so a shared group-commit
+     * transaction stays usable for the other orders in it.
+     */
+    private void takeStock(PendingOrder pending) {
+        Map<Long, Integer> quantities = requestedQuantities(pending.cart());
+        Long shortProductId = null;
+        if (stockReservationService.isEnabled()) {
+            shortProductId = stockReservationService.reserveAll(quantities);
+        } else {
+            List<Map.Entry<Long, Integer>> taken = new ArrayList<>(quantities.size());
+            for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+                if (productRepository.decrementStock(line.getKey(), line.getValue()) != 1) {
+                    shortProductId = line.getKey();
+                    for (Map.Entry<Long, Integer> done : taken) {
+                        productRepository.incrementStock(done.getKey(), done.getValue());
+                    }
+                    break;
+                }
+                taken.add(line);
+            }
+        }
+        if (shortProductId != null) {
+            String message = String.format("Not enough stock for product %s", pending.products().get(shortProductId).getName());
+            log.error(message);
+            throw new IllegalArgumentException(message);
+        }
+    }
+
+    // Sums the quantities per product so a product listed twice is decremented once. Sorted by
+    // product id, so every checkout locks product rows in the same order and two carts holding
+    // the same products cannot deadlock each other
+    private Map<Long, Integer> requestedQuantities(List<CartItem> cart) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (CartItem cartItem : cart) {
+            quantities.merge(cartItem.getProductId(), cartItem.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    /**
+     * Settles a pending order as {@code status}. Orders that already left PENDING are not touched.
+     * An order whose payment failed gives its stock back and leaves its user's order summary in
+     * the same transaction.
+     *
+     * @return true if the order was pending and has been updated
+     */
+    @Transactional
+    public boolean completePayment(Long orderId, OrderStatus status) {
         try {
-            return orderRepository.findById(orderId).orElseThrow(() -> {
-                log.error(String.format("Order with ID %d not found.", orderId));
-                return new IllegalArgumentException("Order not found.");
-            });
-        } catch (IllegalArgumentException e) {
-            throw e; // Re-throw validation errors
+            boolean updated = orderRepository.updateStatus(orderId, OrderStatus.PENDING, status) == 1;
+            if (updated) {
+                if (status == OrderStatus.PAYMENT_FAILED) {
+                    Order order = orderRepository.findWithItemsById(orderId).orElseThrow();
+                    returnStock(order);
+                    userOrderSummaryRepository.removeOrder(order.getUser().getId(), order.getTotalPrice());
+                }
+                log.debug("Order ID {} is now {}.", orderId, status);
+            } else {
+                log.warn("Order ID {} was not pending; status {} not applied.", orderId, status);
+            }
+            return updated;
         } catch (Exception e) {
-            log.error(String.format("Error getting order with ID %d: %s", orderId, e.getMessage()));
-           
-            throw new RuntimeException("Error getting order", e);
+            log.error("Error updating status of order with ID {}: {}", orderId, e.getMessage());
+
+            throw new RuntimeException("Error updating order status", e);
         }
     }
 
-    public List<Order> getUserOrders(Long userId) {
+    // Same product order as takeStock, so a failed order and a checkout lock rows in the same order
+    private void returnStock(Order order) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (OrderItem orderItem : order.getOrderItems()) {
+            quantities.merge(orderItem.getProductId(), orderItem.getQuantity(), Integer::sum);
+        }
+        if (stockReservationService.isEnabled()) {
+            stockReservationService.releaseAll(quantities);
+        } else {
+            quantities.forEach(productRepository::incrementStock);
+            catalogCache.invalidateAll(quantities.keySet());
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} orders still PENDING that were created before {@code before},
+     * oldest first. Used to find orders whose payment never finished.
+     */
+    public List<OrderRow> getPendingOrdersCreatedBefore(Instant before, int limit) {
         try {
-            return orderRepository.findByUserId(userId);
+            return orderRepository.findRowsByStatusCreatedBefore(OrderStatus.PENDING, before, PageRequest.of(0, limit));
         } catch (Exception e) {
-            log.error(String.format("Error getting orders for user with ID %d: %s", userId, e.getMessage()));
-            if (Objects.equals(e.getMessage(), "No value present")) {
-                throw new IllegalArgumentException("User not found.");
-            }
-            throw new RuntimeException("Error getting user orders", e);
+            log.error("Error getting pending orders: {}", e.getMessage());
+
+            throw new RuntimeException("Error getting pending orders", e);
         }
     }
 
-    public List<Order> getOrders() {
+    public Order getOrderById(Long orderId) {
         try {
-            return orderRepository.findAll();
+            return orderRepository.findWithItemsById(orderId).orElseThrow(() -> {
+                log.error("Order with ID {} not found.", orderId);
+                return new IllegalArgumentException("Order not found.");
+            });
+        } catch (IllegalArgumentException e) {
+            throw e; // Re-throw validation errors
         } catch (Exception e) {
-            log.error(String.format("Error getting all orders: %s", e.getMessage()));
-            throw new RuntimeException("Error getting all orders", e);
+            log.error("Error getting order with ID {}: {}", orderId, e.getMessage());
+           
+            throw new RuntimeException("Error getting order", e);
         }
     }
+
+    // A validated cart, ready to be written
+    private record PendingOrder(User user, List<CartItem> cart, Map<Long, Product> products,
+                                double totalPrice, String requestKey) {}
 }
@@ -0,0 +1,71 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.OrderSummaryView;
+import com.example.storebackend.repository.UserOrderSummaryRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Serves per-user order totals from {@code user_order_summary}. Checkout updates a summary in
+ * the same transaction as each new order, and a failed payment in the same transaction as the
+ * order's status change. A summary read is a primary-key lookup, however many orders the user
+ * has.
+ */
+@Slf4j
+@Service
+public class OrderSummaryService {
+    private final UserOrderSummaryRepository summaryRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int rebuildBatchSize;
+
+    @Autowired
+    public OrderSummaryService(UserOrderSummaryRepository summaryRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${store.orders.summary.rebuild-batch-size:1000}") int rebuildBatchSize) {
+        this.summaryRepository = summaryRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+
+    public OrderSummaryView getSummary(Long userId) {
+        try {
+            return summaryRepository.findById(userId)
+                    .map(OrderSummaryView::of)
+                    .orElseGet(() -> OrderSummaryView.empty(userId));
+        } catch (Exception e) {
+            log.error("Error getting order summary for user ID {}: {}", userId, e.getMessage());
+            throw new RuntimeException("Error getting order summary", e);
+        }
+    }
+
+    /**
+     * Recomputes every summary from the orders table, {@code rebuildBatchSize} user ids per
+     * transaction, so each step only locks a slice of the users.
+     *
+     * @return the number of summaries written
+     */
+    public long rebuild() {
+        try {
+            long maxUserId = summaryRepository.findMaxOrderUserId();
+            long rebuilt = 0;
+            for (long from = 0; from <= maxUserId; from += rebuildBatchSize) {
+                long to = from + rebuildBatchSize;
+                long start = from;
+                Integer inserted = transactionTemplate.execute(status -> {
+                    summaryRepository.deleteRange(start, to);
+                    return summaryRepository.insertRange(start, to);
+                });
+                rebuilt += inserted == null ? 0 : inserted;
+            }
+            log.info("Rebuilt {} order summaries.", rebuilt);
+            return rebuilt;
+        } catch (Exception e) {
+            log.error("Error rebuilding order summaries: {}", e.getMessage());
+            throw new RuntimeException("Error rebuilding order summaries", e);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.OrderItemRow;
+import com.example.storebackend.dto.OrderItemView;
+import com.example.storebackend.dto.OrderRow;
+import com.example.storebackend.dto.OrderView;
+import com.example.storebackend.repository.OrderItemRepository;
+import com.example.storebackend.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read paths for order listings. Orders are read as {@link OrderRow} projections and their items
+ * with one query per listing, so no entity is hydrated or tracked by the persistence context.
+ */
+@Slf4j
+@Service
+public class OrderViewService {
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    @Autowired
+    public OrderViewService(OrderRepository orderRepository,
+                            OrderItemRepository orderItemRepository,
+                            @Value("${store.orders.page-size:100}") int defaultPageSize,
+                            @Value("${store.orders.max-page-size:1000}") int maxPageSize) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public List<OrderView> getUserOrders(Long userId) {
+        try {
+            return withItems(orderRepository.findRowsByUserId(userId));
+        } catch (Exception e) {
+            log.error("Error getting orders for user with ID {}: {}", userId, e.getMessage());
+            throw new RuntimeException("Error getting user orders", e);
+        }
+    }
+
+    /**
+     * Returns the page of orders that follows {@code afterId} in id order (the first page when
+     * it is null), sized like the product listing pages.
+     */
+    public List<OrderView> getOrdersPage(Long afterId, Integer size) {
+        int pageSize = (size == null || size <= 0) ? defaultPageSize : Math.min(size, maxPageSize);
+        try {
+            return withItems(orderRepository.findRowsAfter(afterId == null ? 0L : afterId, PageRequest.of(0, pageSize)));
+        } catch (Exception e) {
+            log.error("Error getting orders after ID {}: {}", afterId, e.getMessage());
+            throw new RuntimeException("Error getting all orders", e);
+        }
+    }
+
+    /**
+     * Attaches the items of all given orders, fetched with a single query, keeping the row order.
+     */
+    public List<OrderView> withItems(List<OrderRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        List<Long> orderIds = new ArrayList<>(rows.size());
+        for (OrderRow row : rows) {
+            orderIds.add(row.id());
+        }
+        Map<Long, List<OrderItemView>> itemsByOrder = new HashMap<>();
+        for (OrderItemRow item : orderItemRepository.findRowsByOrderIds(orderIds)) {
+            itemsByOrder.computeIfAbsent(item.orderId(), id -> new ArrayList<>()).add(OrderItemView.of(item));
+        }
+
+        List<OrderView> orders = new ArrayList<>(rows.size());
+        for (OrderRow row : rows) {
+            orders.add(OrderView.of(row, itemsByOrder.getOrDefault(row.id(), List.of())));
+        }
+        return orders;
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.OrderRow;
+import com.example.storebackend.model.Order;
+import com.example.storebackend.model.OrderStatus;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs payments for pending orders off the request thread. Payments are processed by a bounded
+ * worker pool; a declined or failed attempt is retried with exponential backoff, and the order
+ * moves to PAID or PAYMENT_FAILED once the outcome is known.
+ * <p>
+ * When every worker is busy and the queue is full, a new payment is not queued and its order stays
+ * PENDING; request threads never run payments or sleep between retries. A recovery sweep, run at
+ * startup and then periodically, resubmits orders that have been PENDING for longer than the
+ * pending timeout, which also picks up payments lost to a crash or a shutdown. The timeout must be
+ * longer than a payment can take on any node, including its queueing and retries, or an order
+ * still being paid elsewhere may be charged twice.
+ */
+@Slf4j
+@Service
+public class PaymentPipeline {
+    private final PaymentService paymentService;
+    private final OrderService orderService;
+    private final ThreadPoolExecutor executor;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Duration pendingTimeout;
+    private final int queueCapacity;
+    // Orders queued or being paid on this node, so the sweep does not submit them again
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public PaymentPipeline(PaymentService paymentService,
+                           OrderService orderService,
+                           @Value("${store.payment.workers:8}") int workers,
+                           @Value("${store.payment.queue-capacity:1000}") int queueCapacity,
+                           @Value("${store.payment.max-attempts:3}") int maxAttempts,
+                           @Value("${store.payment.initial-backoff:200ms}") Duration initialBackoff,
+                           @Value("${store.payment.max-backoff:5s}") Duration maxBackoff,
+                           @Value("${store.payment.pending-timeout:5m}") Duration pendingTimeout) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("Max attempts must be at least 1.");
+        }
+        this.paymentService = paymentService;
+        this.orderService = orderService;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = initialBackoff;
+        this.maxBackoff = maxBackoff;
+        this.pendingTimeout = pendingTimeout;
+        this.queueCapacity = queueCapacity;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), workerThreads(), new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues the payment of an order. The order must already be committed as PENDING. If the queue
+     * is full the order is left PENDING for the recovery sweep.
+     *
+     * @return true if the payment was queued or is already queued on this node
+     */
+    public boolean submit(Order order) {
+        Long orderId = order.getId();
+        if (!inFlight.add(orderId)) {
+            return true;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    pay(order);
+                } finally {
+                    inFlight.remove(orderId);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(orderId);
+            log.warn("Payment queue full; order ID {} stays PENDING until the recovery sweep.", orderId);
+            return false;
+        }
+    }
+
+    /**
+     * Resubmits orders that have been PENDING for longer than the pending timeout, oldest first and
+     * at most a queue's worth per run.
+     */
+    @Scheduled(fixedDelayString = "${store.payment.recovery-interval-ms:60000}")
+    public void resubmitStalePayments() {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            List<OrderRow> stale = orderService.getPendingOrdersCreatedBefore(Instant.now().minus(pendingTimeout), queueCapacity);
+            int submitted = 0;
+            for (OrderRow row : stale) {
+                if (inFlight.contains(row.id())) {
+                    continue;
+                }
+                // Payment only needs the order id and amount
+                if (!submit(new Order(row.id(), null, null, row.totalPrice(), row.status(), null))) {
+                    break;
+                }
+                submitted++;
+            }
+            if (submitted > 0) {
+                log.info("Resubmitted payment of {} orders pending for over {}.", submitted, pendingTimeout);
+            }
+        } catch (Exception e) {
+            log.error("Error resubmitting pending payments: {}", e.getMessage());
+        }
+    }
+
+    void pay(Order order) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                if (paymentService.processPayment(order)) {
+                    orderService.completePayment(order.getId(), OrderStatus.PAID);
+                    return;
+                }
+                log.warn("Payment attempt {} of {} declined for order ID {}.", attempt, maxAttempts, order.getId());
+            } catch (Exception e) {
+                log.error("Payment attempt {} of {} failed for order ID {}: {}",
+                        attempt, maxAttempts, order.getId(), e.getMessage());
+            }
+            if (attempt < maxAttempts && !backOff(attempt)) {
+                log.warn("Payment of order ID {} interrupted; the order stays PENDING.", order.getId());
+                return;
+            }
+        }
+        try {
+            orderService.completePayment(order.getId(), OrderStatus.PAYMENT_FAILED);
+        } catch (Exception e) {
+            log.error("Could not mark order ID {} as failed: {}", order.getId(), e.getMessage());
+        }
+    }
+
+    // Sleeps initialBackoff * 2^(attempt - 1), capped at maxBackoff; returns false if interrupted
+    private boolean backOff(int attempt) {
+        long delay = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(delay);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("{} payments still queued at shutdown; their orders stay PENDING.",
+                    executor.shutdownNow().size());
+        }
+    }
+
+    private static ThreadFactory workerThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "payment-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -4,16 +4,47 @@ import com.example.storebackend.model.Order;
 
 import lombok.extern.slf4j.Slf4j;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated payment provider. For local testing it can wait {@code store.payment.simulated-latency}
+ * per call and decline a fraction {@code store.payment.simulated-failure-rate} of payments.
+ */
 @Slf4j
 @Service
 public class PaymentService {
+    private final Duration simulatedLatency;
+    private final double simulatedFailureRate;
+
+    @Autowired
+    public PaymentService(@Value("${store.payment.simulated-latency:0ms}") Duration simulatedLatency,
+                          @Value("${store.payment.simulated-failure-rate:0.0}") double simulatedFailureRate) {
+        if (simulatedFailureRate < 0.0 || simulatedFailureRate > 1.0) {
+            throw new IllegalArgumentException("Simulated failure rate must be between 0 and 1.");
+        }
+        this.simulatedLatency = simulatedLatency;
+        this.simulatedFailureRate = simulatedFailureRate;
+    }
 
     public boolean processPayment(Order order) {
-        // Simulate successful payment processing
-        log.info(String.format("Processing payment for order ID %d. Total amount: %.2f",
-                    order.getId(), order.getTotalPrice()));
+        log.debug("Processing payment for order ID {}. Total amount: {}", order.getId(), order.getTotalPrice());
+        if (!simulatedLatency.isZero()) {
+            try {
+                Thread.sleep(simulatedLatency.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        if (simulatedFailureRate > 0.0 && ThreadLocalRandom.current().nextDouble() < simulatedFailureRate) {
+            log.warn("Simulated payment failure for order ID {}.", order.getId());
+            return false;
+        }
         return true; // Return true for successful payment
     }
 }
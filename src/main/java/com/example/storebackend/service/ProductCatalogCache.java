@@ -0,0 +1,90 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.model.Product;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of catalog products, shared by the product, cart and checkout paths.
+ * Entries expire after a fixed time and are evicted by size; hit, miss and eviction counts are
+ * published as the {@code products} cache metrics. Cached products are shared between requests
+ * and must not be modified.
+ */
+@Component
+public class ProductCatalogCache {
+    private final Cache<Long, Product> cache;
+
+    @Autowired
+    public ProductCatalogCache(@Value("${store.catalog.cache.maximum-size:10000}") long maximumSize,
+                               @Value("${store.catalog.cache.ttl:5m}") Duration ttl,
+                               MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "products");
+    }
+
+    /**
+     * Returns the cached product, loading it with {@code loader} on a miss. A loader returning
+     * null caches nothing and makes this method return null.
+     * <p>
+     * The loader runs outside the cache's internal locks: a blocking load inside them would pin
+     * virtual threads to their carrier for the whole database call. Concurrent misses on the same
+     * product may therefore each load it once.
+     */
+    public Product get(Long productId, Function<Long, Product> loader) {
+        Product product = cache.getIfPresent(productId);
+        if (product == null) {
+            product = loader.apply(productId);
+            if (product != null) {
+                cache.put(productId, product);
+            }
+        }
+        return product;
+    }
+
+    /**
+     * Returns the cached products, loading all misses with one call to {@code loader}. Products
+     * the loader does not return are left out of the result.
+     */
+    public Map<Long, Product> getAll(Collection<Long> productIds,
+                                     Function<Set<? extends Long>, Map<Long, Product>> loader) {
+        return cache.getAll(productIds, loader);
+    }
+
+    public void invalidate(Long productId) {
+        invalidateAll(List.of(productId));
+    }
+
+    /**
+     * Drops the given products. Inside a transaction they are dropped again after commit, so a
+     * concurrent read cannot re-cache the state from before the change.
+     */
+    public void invalidateAll(Collection<Long> productIds) {
+        cache.invalidateAll(productIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.invalidateAll(productIds);
+                }
+            });
+        }
+    }
+}
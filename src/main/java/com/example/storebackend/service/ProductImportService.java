@@ -0,0 +1,335 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.ProductImportError;
+import com.example.storebackend.dto.ProductImportResult;
+import com.example.storebackend.dto.ProductImportRow;
+import com.example.storebackend.model.Product;
+import com.example.storebackend.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Creates and updates products from a CSV or NDJSON stream. The input is read line by line and
+ * written in chunks of {@code store.products.import.batch-size} rows, one transaction per chunk:
+ * rows with an id are updated with one JDBC batch, rows without one are inserted through JPA
+ * with batched inserts. Memory is bounded by the chunk size, whatever the size of the input.
+ * <p>
+ * While stock reservations are enabled, the stock of updated rows is handed to
+ * {@link StockReservationService} once the chunk commits instead of being written to the table.
+ * <p>
+ * Invalid rows are skipped and reported by line number. A chunk the database rejects is written
+ * again one row per transaction, so only the rows that fail themselves are reported. Row counts
+ * are published as {@code store.products.import.rows} with a {@code result} tag, so a running
+ * import can be followed on the metrics endpoint.
+ */
+@Slf4j
+@Service
+public class ProductImportService {
+    private static final String UPDATE_SQL = "UPDATE product SET name = ?, price = ?, stock = ? WHERE id = ?";
+    // The reservation engine owns the stock column while it is enabled
+    private static final String UPDATE_WITHOUT_STOCK_SQL = "UPDATE product SET name = ?, price = ? WHERE id = ?";
+
+    public enum Format { CSV, NDJSON }
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCatalogCache catalogCache;
+    private final StockReservationService stockReservationService;
+    private final ObjectReader rowReader;
+    private final int batchSize;
+    private final int maxReportedErrors;
+    private final Counter insertedRows;
+    private final Counter updatedRows;
+    private final Counter failedRows;
+
+    @Autowired
+    public ProductImportService(ProductRepository productRepository,
+                                JdbcTemplate jdbcTemplate,
+                                PlatformTransactionManager transactionManager,
+                                ProductCatalogCache catalogCache,
+                                StockReservationService stockReservationService,
+                                ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry,
+                                @Value("${store.products.import.batch-size:1000}") int batchSize,
+                                @Value("${store.products.import.max-reported-errors:100}") int maxReportedErrors) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.catalogCache = catalogCache;
+        this.stockReservationService = stockReservationService;
+        this.rowReader = objectMapper.readerFor(ProductImportRow.class);
+        this.batchSize = batchSize;
+        this.maxReportedErrors = maxReportedErrors;
+        this.insertedRows = Counter.builder("store.products.import.rows").tag("result", "inserted").register(meterRegistry);
+        this.updatedRows = Counter.builder("store.products.import.rows").tag("result", "updated").register(meterRegistry);
+        this.failedRows = Counter.builder("store.products.import.rows").tag("result", "failed").register(meterRegistry);
+    }
+
+    /**
+     * Imports every row of {@code inputStream}. CSV input starts with a header naming the columns
+     * {@code name}, {@code price}, {@code stock} and optionally {@code id}, in any order; NDJSON
+     * input has one {@link ProductImportRow} object per line. Blank lines are ignored.
+     */
+    public ProductImportResult importProducts(InputStream inputStream, Format format) throws IOException {
+        long start = System.nanoTime();
+        Progress progress = new Progress();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+
+        CsvColumns columns = null;
+        if (format == Format.CSV) {
+            String header = reader.readLine();
+            progress.line++;
+            if (header == null) {
+                throw new IllegalArgumentException("The CSV input has no header.");
+            }
+            columns = CsvColumns.of(header);
+        }
+
+        List<Long> lines = new ArrayList<>(batchSize);
+        List<ProductImportRow> chunk = new ArrayList<>(batchSize);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            progress.line++;
+            if (line.isBlank()) {
+                continue;
+            }
+            progress.rows++;
+            ProductImportRow row;
+            try {
+                row = validate(format == Format.CSV ? columns.parse(line) : parseJson(line));
+            } catch (IllegalArgumentException e) {
+                progress.fail(progress.line, e.getMessage());
+                continue;
+            }
+            chunk.add(row);
+            lines.add(progress.line);
+            if (chunk.size() == batchSize) {
+                writeChunk(chunk, lines, progress);
+                chunk.clear();
+                lines.clear();
+                log.debug("Product import at line {}: {} inserted, {} updated, {} failed.",
+                        progress.line, progress.inserted, progress.updated, progress.failed);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            writeChunk(chunk, lines, progress);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Imported {} product rows in {} ms ({} rows/s): {} inserted, {} updated, {} failed.",
+                progress.rows, elapsedMillis, progress.rows * 1000 / Math.max(elapsedMillis, 1),
+                progress.inserted, progress.updated, progress.failed);
+        return new ProductImportResult(progress.rows, progress.inserted, progress.updated, progress.failed,
+                progress.errors, elapsedMillis);
+    }
+
+    private void writeChunk(List<ProductImportRow> chunk, List<Long> lines, Progress progress) {
+        boolean stockManagedByEngine = stockReservationService.isEnabled();
+        List<Object[]> updates = new ArrayList<>();
+        List<Long> updateLines = new ArrayList<>();
+        List<Long> updatedIds = new ArrayList<>();
+        List<Integer> updatedStocks = new ArrayList<>();
+        List<Product> inserts = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            ProductImportRow row = chunk.get(i);
+            if (row.id() == null) {
+                inserts.add(new Product(null, row.name(), row.price(), row.stock()));
+            } else {
+                updates.add(stockManagedByEngine
+                        ? new Object[]{row.name(), row.price(), row.id()}
+                        : new Object[]{row.name(), row.price(), row.stock(), row.id()});
+                updateLines.add(lines.get(i));
+                updatedIds.add(row.id());
+                updatedStocks.add(row.stock());
+            }
+        }
+
+        int[] updateCounts;
+        try {
+            updateCounts = transactionTemplate.execute(status -> {
+                int[] counts = updates.isEmpty() ? new int[0]
+                        : jdbcTemplate.batchUpdate(stockManagedByEngine ? UPDATE_WITHOUT_STOCK_SQL : UPDATE_SQL, updates);
+                productRepository.saveAll(inserts);
+                return counts;
+            });
+        } catch (Exception e) {
+            // Nothing in this chunk was written; write its rows one by one so only the bad ones fail
+            if (chunk.size() > 1) {
+                log.warn("Error importing products at lines {}-{}, retrying row by row: {}",
+                        lines.get(0), lines.get(lines.size() - 1), e.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    writeChunk(List.of(chunk.get(i)), List.of(lines.get(i)), progress);
+                }
+                return;
+            }
+            log.error("Error importing product at line {}: {}", lines.get(0), e.getMessage());
+            progress.fail(lines.get(0), "Could not be written: " + e.getMessage());
+            return;
+        }
+        if (!updatedIds.isEmpty()) {
+            catalogCache.invalidateAll(updatedIds);
+        }
+
+        progress.inserted += inserts.size();
+        insertedRows.increment(inserts.size());
+        int updated = 0;
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                progress.fail(updateLines.get(i), "Product not found.");
+                continue;
+            }
+            if (stockManagedByEngine) {
+                try {
+                    stockReservationService.setStock(updatedIds.get(i), updatedStocks.get(i));
+                } catch (Exception e) {
+                    // Name and price are already committed; only the stock is missing
+                    log.error("Error setting stock of product ID {}: {}", updatedIds.get(i), e.getMessage());
+                    progress.fail(updateLines.get(i), "Updated, but the stock could not be set: " + e.getMessage());
+                    continue;
+                }
+            }
+            updated++;
+        }
+        progress.updated += updated;
+        updatedRows.increment(updated);
+    }
+
+    private ProductImportRow parseJson(String line) {
+        try {
+            ProductImportRow row = rowReader.readValue(line);
+            if (row == null) {
+                throw new IllegalArgumentException("Expected a JSON object.");
+            }
+            return row;
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static ProductImportRow validate(ProductImportRow row) {
+        if (row.name() == null || row.name().isBlank()) {
+            throw new IllegalArgumentException("Name is required.");
+        }
+        if (row.price() == null || !Double.isFinite(row.price()) || row.price() < 0) {
+            throw new IllegalArgumentException("Price must be zero or more.");
+        }
+        if (row.stock() == null || row.stock() < 0) {
+            throw new IllegalArgumentException("Stock must be zero or more.");
+        }
+        if (row.id() != null && row.id() <= 0) {
+            throw new IllegalArgumentException("Id must be positive.");
+        }
+        return row;
+    }
+
+    private final class Progress {
+        private long line;
+        private long rows;
+        private long inserted;
+        private long updated;
+        private long failed;
+        private final List<ProductImportError> errors = new ArrayList<>();
+
+        private void fail(long line, String message) {
+            failed++;
+            failedRows.increment();
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportError(line, message));
+            }
+        }
+    }
+
+    /**
+     * Column positions taken from the CSV header. Fields may be quoted with double quotes, with
+     * {@code ""} for a quote inside a field; a field cannot span lines.
+     */
+    private record CsvColumns(int id, int name, int price, int stock) {
+
+        static CsvColumns of(String header) {
+            List<String> names = split(header);
+            int id = -1, name = -1, price = -1, stock = -1;
+            for (int i = 0; i < names.size(); i++) {
+                switch (names.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "id" -> id = i;
+                    case "name" -> name = i;
+                    case "price" -> price = i;
+                    case "stock" -> stock = i;
+                    default -> { }
+                }
+            }
+            if (name < 0 || price < 0 || stock < 0) {
+                throw new IllegalArgumentException("The CSV header must name the columns name, price and stock.");
+            }
+            return new CsvColumns(id, name, price, stock);
+        }
+
+        ProductImportRow parse(String line) {
+            List<String> fields = split(line);
+            try {
+                String idField = field(fields, id);
+                return new ProductImportRow(
+                        idField.isEmpty() ? null : Long.valueOf(idField),
+                        field(fields, name),
+                        Double.valueOf(field(fields, price)),
+                        Integer.valueOf(field(fields, stock)));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Malformed number: " + e.getMessage());
+            }
+        }
+
+        private static String field(List<String> fields, int index) {
+            return index >= 0 && index < fields.size() ? fields.get(index).trim() : "";
+        }
+
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            if (quoted) {
+                throw new IllegalArgumentException("Unterminated quoted field.");
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
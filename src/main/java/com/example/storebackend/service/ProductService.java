@@ -1,61 +1,123 @@
 package com.example.storebackend.service;
 
+import com.example.storebackend.dto.ProductView;
 import com.example.storebackend.model.Product;
 import com.example.storebackend.repository.ProductRepository;
+import io.micrometer.core.annotation.Timed;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
+@Timed(value = "store.service.products", histogram = true)
 public class ProductService {
     private final ProductRepository productRepository;
+    private final ProductCatalogCache catalogCache;
+    private final int defaultPageSize;
+    private final int maxPageSize;
 
     @Autowired
-    public ProductService(ProductRepository productRepository) {
+    public ProductService(ProductRepository productRepository,
+                          ProductCatalogCache catalogCache,
+                          @Value("${store.products.page-size:100}") int defaultPageSize,
+                          @Value("${store.products.max-page-size:1000}") int maxPageSize) {
         this.productRepository = productRepository;
+        this.catalogCache = catalogCache;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
     }
 
     public Product addProduct(Product product) {
         try {
-            return productRepository.save(product);
+            Product savedProduct = productRepository.save(product);
+            if (savedProduct.getId() != null) {
+                catalogCache.invalidate(savedProduct.getId());
+            }
+            return savedProduct;
         } catch (Exception e) {
-            log.error(String.format("Error saving product: %s", e.getMessage()));
+            log.error("Error saving product: {}", e.getMessage());
             throw new RuntimeException("Error saving product", e);
         }
     }
 
-    public List<Product> getAllProducts() {
+    /**
+     * Returns the page of products that follows {@code afterId} in id order (the first page when
+     * it is null). A missing or non-positive size falls back to the configured default page size,
+     * and sizes above the configured maximum are capped.
+     */
+    public List<ProductView> getProductsPage(Long afterId, Integer size) {
+        int pageSize = (size == null || size <= 0) ? defaultPageSize : Math.min(size, maxPageSize);
         try {
-            return productRepository.findAll();
+            return productRepository.findViewsAfter(afterId == null ? 0L : afterId, PageRequest.of(0, pageSize));
         } catch (Exception e) {
-            log.error(String.format("Error getting all products: %s", e.getMessage()));
-            throw new RuntimeException("Error getting all products", e);
+            log.error("Error getting products after Id {}: {}", afterId, e.getMessage());
+            throw new RuntimeException("Error getting products", e);
+        }
+    }
+
+    /**
+     * Hands every product to {@code consumer} in id order while reading them from a database
+     * cursor. Rows are projections, not managed entities, so memory does not grow with the catalog.
+     */
+    @Transactional(readOnly = true)
+    public void streamAllProducts(Consumer<ProductView> consumer) {
+        try (Stream<ProductView> products = productRepository.streamAllViews()) {
+            products.forEach(consumer);
         }
     }
 
     public Product getProductById(Long productId) {
+        Product product;
         try {
-            Optional<Product> product = productRepository.findById(productId);
-            return product.get();
+            product = catalogCache.get(productId, id -> productRepository.findById(id).orElse(null));
         } catch (Exception e) {
-            log.error(String.format("Error getting product with Id %s: %s", productId, e.getMessage()));
-            if (Objects.equals(e.getMessage(), "No value present")) {
-                throw new IllegalArgumentException("Product not found");
-            }
+            log.error("Error getting product with Id {}: {}", productId, e.getMessage());
             throw new RuntimeException("Error getting product", e);
         }
+        if (product == null) {
+            log.error("Error getting product with Id {}: Product not found", productId);
+            throw new IllegalArgumentException("Product not found");
+        }
+        return product;
+    }
+
+    /**
+     * Returns the requested products by ID, querying the database once for all of them that are
+     * not cached. IDs of products that do not exist are missing from the result.
+     */
+    public Map<Long, Product> getProductsByIds(Collection<Long> productIds) {
+        try {
+            return catalogCache.getAll(productIds, missingIds -> {
+                List<Long> idsToLoad = List.copyOf(missingIds);
+                Map<Long, Product> products = new HashMap<>();
+                for (Product product : productRepository.findAllById(idsToLoad)) {
+                    products.put(product.getId(), product);
+                }
+                return products;
+            });
+        } catch (Exception e) {
+            log.error("Error getting products with Ids {}: {}", productIds, e.getMessage());
+            throw new RuntimeException("Error getting products", e);
+        }
     }
 
     public void deleteProductById(Long productId) {
         try {
             productRepository.deleteById(productId);
+            catalogCache.invalidate(productId);
         } catch (Exception e) {
-            log.error(String.format("Error deleting product with Id %s: %s", productId, e.getMessage()));
+            log.error("Error deleting product with Id {}: {}", productId, e.getMessage());
             throw new RuntimeException("Error deleting product", e);
         }
     }
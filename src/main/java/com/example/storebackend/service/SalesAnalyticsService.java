@@ -0,0 +1,180 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.ProductSales;
+import com.example.storebackend.dto.SalesReport;
+import com.example.storebackend.model.OrderStatus;
+import com.example.storebackend.repository.OrderItemRepository;
+import com.example.storebackend.repository.OrderRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Product sales figures for admins: units sold, revenue and best sellers over a time window.
+ * Failed payments are not counted.
+ * <p>
+ * Day-aligned windows are answered from an in-memory {@link SalesRollup} of sales per product
+ * per UTC day, without touching the database. The rollup is filled by grouping the items of the
+ * paid orders of each day in the database, and kept current by grouping the items of orders
+ * paid since the last refresh. A day once rolled up is never revisited, so a refresh stops at
+ * the oldest order still PENDING, whose payment may yet succeed or fail, and at orders younger
+ * than {@code store.analytics.refresh-lag}, whose checkout may not have committed yet. Windows
+ * at any other precision are grouped by the database on each request and include pending orders.
+ */
+@Slf4j
+@Service
+public class SalesAnalyticsService {
+
+    public enum Metric { REVENUE, UNITS }
+
+    private final OrderItemRepository orderItemRepository;
+    private final OrderRepository orderRepository;
+    private final SalesRollup rollup = new SalesRollup();
+    private final Duration refreshLag;
+    private final int maxDaysPerRefresh;
+    private final int maxLimit;
+    // Orders created before this instant are in the rollup; null until the first refresh finds orders
+    private volatile Instant rolledUpUntil;
+
+    @Autowired
+    public SalesAnalyticsService(OrderItemRepository orderItemRepository,
+                                 OrderRepository orderRepository,
+                                 @Value("${store.analytics.refresh-lag:1m}") Duration refreshLag,
+                                 @Value("${store.analytics.max-days-per-refresh:31}") int maxDaysPerRefresh,
+                                 @Value("${store.analytics.max-limit:1000}") int maxLimit) {
+        this.orderItemRepository = orderItemRepository;
+        this.orderRepository = orderRepository;
+        this.refreshLag = refreshLag;
+        this.maxDaysPerRefresh = maxDaysPerRefresh;
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * The {@code limit} best sellers over the days {@code [from, to)}, from the rollup.
+     */
+    public SalesReport getTopProducts(LocalDate from, LocalDate to, int limit, Metric metric) {
+        validateWindow(from, to, limit);
+        try {
+            List<ProductSales> products = rollup.top(from.toEpochDay(), to.toEpochDay(), limit, metric == Metric.UNITS);
+            return new SalesReport(startOf(from), startOf(to), dataUntil(startOf(from), startOf(to)), products);
+        } catch (Exception e) {
+            log.error("Error getting top products from {} to {}: {}", from, to, e.getMessage());
+            throw new RuntimeException("Error getting top products", e);
+        }
+    }
+
+    /**
+     * Sales of one product over the days {@code [from, to)}, from the rollup.
+     */
+    public ProductSales getProductSales(Long productId, LocalDate from, LocalDate to) {
+        validateWindow(from, to, 1);
+        try {
+            return rollup.product(productId, from.toEpochDay(), to.toEpochDay());
+        } catch (Exception e) {
+            log.error("Error getting sales of product ID {}: {}", productId, e.getMessage());
+            throw new RuntimeException("Error getting product sales", e);
+        }
+    }
+
+    /**
+     * The {@code limit} best sellers by revenue over {@code [from, to)}, grouped by the database.
+     * Exact and current, at the cost of a query over every order item in the window.
+     */
+    public SalesReport getSales(Instant from, Instant to, int limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("The window must end after it starts.");
+        }
+        validateLimit(limit);
+        try {
+            List<ProductSales> products = orderItemRepository.findTopSalesBetween(from, to, PageRequest.of(0, limit));
+            return new SalesReport(from, to, to, products);
+        } catch (Exception e) {
+            log.error("Error getting sales from {} to {}: {}", from, to, e.getMessage());
+            throw new RuntimeException("Error getting sales", e);
+        }
+    }
+
+    /**
+     * Rolls up the orders created since the last refresh, one query per UTC day and at most
+     * {@code store.analytics.max-days-per-refresh} days per call, so loading a long history is
+     * spread over several runs instead of holding the scheduler.
+     */
+    @Scheduled(fixedDelayString = "${store.analytics.refresh-interval-ms:10000}")
+    public synchronized void refresh() {
+        try {
+            Instant until = Instant.now().minus(refreshLag);
+            Instant oldestPending = orderRepository.findFirstCreatedAtByStatus(OrderStatus.PENDING);
+            if (oldestPending != null && oldestPending.isBefore(until)) {
+                until = oldestPending;
+            }
+            Instant from = rolledUpUntil;
+            if (from == null) {
+                Instant first = orderRepository.findFirstCreatedAt();
+                if (first == null) {
+                    return;
+                }
+                from = first.truncatedTo(ChronoUnit.DAYS);
+            }
+            int days = 0;
+            while (from.isBefore(until) && days < maxDaysPerRefresh) {
+                Instant dayEnd = from.truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS);
+                Instant to = dayEnd.isBefore(until) ? dayEnd : until;
+                List<ProductSales> sales = orderItemRepository.findSalesBetween(from, to);
+                rollup.add(LocalDate.ofInstant(from, ZoneOffset.UTC).toEpochDay(), sales);
+                from = to;
+                rolledUpUntil = from;
+                days++;
+            }
+            if (days > 1) {
+                log.info("Rolled up {} days of sales, now complete until {}.", days, rolledUpUntil);
+            }
+        } catch (Exception e) {
+            // The next run resumes from the last day rolled up
+            log.error("Error refreshing the sales rollup after {}: {}", rolledUpUntil, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the rollup; the following refreshes load it again from the database.
+     */
+    public synchronized void reset() {
+        rollup.clear();
+        rolledUpUntil = null;
+        log.info("Sales rollup reset.");
+    }
+
+    private Instant dataUntil(Instant from, Instant to) {
+        Instant until = rolledUpUntil;
+        if (until == null || until.isBefore(from)) {
+            return from;
+        }
+        return until.isBefore(to) ? until : to;
+    }
+
+    private void validateWindow(LocalDate from, LocalDate to, int limit) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("The window must end after it starts.");
+        }
+        validateLimit(limit);
+    }
+
+    private void validateLimit(int limit) {
+        if (limit < 1 || limit > maxLimit) {
+            throw new IllegalArgumentException(String.format("Limit must be between 1 and %d.", maxLimit));
+        }
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.ProductSales;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Product sales per UTC day, held column-wise: each day keeps parallel arrays of product index,
+ * units and revenue, sorted by product index. A window query adds the columns of its days into
+ * dense arrays indexed by product, so it touches one entry per product sold per day and no
+ * per-product objects.
+ * <p>
+ * One thread writes, any number read. A day's columns are never changed in place; an update
+ * builds new ones and swaps them in, so readers always see a consistent day.
+ */
+final class SalesRollup {
+
+    private final ConcurrentSkipListMap<Long, DayColumns> days = new ConcurrentSkipListMap<>();
+    // Product id to dense index; only the writer adds entries
+    private final Map<Long, Integer> productIndex = new ConcurrentHashMap<>();
+    private volatile long[] productIds = new long[0];
+
+    /**
+     * Adds {@code sales} to the totals of {@code epochDay}.
+     */
+    void add(long epochDay, Collection<ProductSales> sales) {
+        if (sales.isEmpty()) {
+            return;
+        }
+        int[] index = new int[sales.size()];
+        long[] units = new long[sales.size()];
+        double[] revenue = new double[sales.size()];
+        int n = 0;
+        for (ProductSales productSales : sales) {
+            index[n] = indexOf(productSales.productId());
+            units[n] = productSales.unitsSold() == null ? 0 : productSales.unitsSold();
+            revenue[n] = productSales.revenue() == null ? 0.0 : productSales.revenue();
+            n++;
+        }
+        DayColumns added = DayColumns.sorted(index, units, revenue);
+        days.merge(epochDay, added, DayColumns::merge);
+    }
+
+    void clear() {
+        days.clear();
+    }
+
+    /**
+     * The {@code limit} best-selling products over days {@code [fromDay, toDay)}, by revenue or
+     * by units, best first.
+     */
+    List<ProductSales> top(long fromDay, long toDay, int limit, boolean byUnits) {
+        Totals totals = totals(fromDay, toDay);
+        PriorityQueue<Integer> best = new PriorityQueue<>(limit + 1, totals.comparator(byUnits));
+        for (int i = 0; i < totals.sold.length; i++) {
+            if (!totals.sold[i]) {
+                continue;
+            }
+            best.add(i);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<ProductSales> result = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            result.add(totals.sales(best.poll()));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Sales of one product over days {@code [fromDay, toDay)}; zero when it sold nothing.
+     */
+    ProductSales product(long productId, long fromDay, long toDay) {
+        long units = 0;
+        double revenue = 0.0;
+        Integer index = productIndex.get(productId);
+        if (index != null) {
+            for (DayColumns day : days.subMap(fromDay, toDay).values()) {
+                int position = Arrays.binarySearch(day.index, index);
+                if (position >= 0) {
+                    units += day.units[position];
+                    revenue += day.revenue[position];
+                }
+            }
+        }
+        return new ProductSales(productId, units, revenue);
+    }
+
+    private Totals totals(long fromDay, long toDay) {
+        long[] ids = productIds;
+        Totals totals = new Totals(ids);
+        for (DayColumns day : days.subMap(fromDay, toDay).values()) {
+            for (int i = 0; i < day.index.length; i++) {
+                int product = day.index[i];
+                // Products added after the snapshot was taken belong to newer data
+                if (product < ids.length) {
+                    totals.sold[product] = true;
+                    totals.units[product] += day.units[i];
+                    totals.revenue[product] += day.revenue[i];
+                }
+            }
+        }
+        return totals;
+    }
+
+    private int indexOf(Long productId) {
+        Integer index = productIndex.get(productId);
+        if (index == null) {
+            index = productIndex.size();
+            productIndex.put(productId, index);
+            long[] grown = Arrays.copyOf(productIds, index + 1);
+            grown[index] = productId;
+            productIds = grown;
+        }
+        return index;
+    }
+
+    private static final class Totals {
+        private final long[] productIds;
+        private final boolean[] sold;
+        private final long[] units;
+        private final double[] revenue;
+
+        private Totals(long[] productIds) {
+            this.productIds = productIds;
+            this.sold = new boolean[productIds.length];
+            this.units = new long[productIds.length];
+            this.revenue = new double[productIds.length];
+        }
+
+        // Worst first, so the head of a bounded queue is the one to drop
+        private Comparator<Integer> comparator(boolean byUnits) {
+            Comparator<Integer> metric = byUnits
+                    ? (a, b) -> Long.compare(units[a], units[b])
+                    : (a, b) -> Double.compare(revenue[a], revenue[b]);
+            return metric.thenComparing((a, b) -> Long.compare(productIds[b], productIds[a]));
+        }
+
+        private ProductSales sales(int index) {
+            return new ProductSales(productIds[index], units[index], revenue[index]);
+        }
+    }
+
+    private record DayColumns(int[] index, long[] units, double[] revenue) {
+
+        static DayColumns sorted(int[] index, long[] units, double[] revenue) {
+            Integer[] order = new Integer[index.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> Integer.compare(index[a], index[b]));
+            int[] sortedIndex = new int[index.length];
+            long[] sortedUnits = new long[index.length];
+            double[] sortedRevenue = new double[index.length];
+            int n = 0;
+            for (int i : order) {
+                // Entries for the same product are summed
+                if (n > 0 && sortedIndex[n - 1] == index[i]) {
+                    sortedUnits[n - 1] += units[i];
+                    sortedRevenue[n - 1] += revenue[i];
+                    continue;
+                }
+                sortedIndex[n] = index[i];
+                sortedUnits[n] = units[i];
+                sortedRevenue[n] = revenue[i];
+                n++;
+            }
+            return new DayColumns(Arrays.copyOf(sortedIndex, n), Arrays.copyOf(sortedUnits, n), Arrays.copyOf(sortedRevenue, n));
+        }
+
+        // Merge of two sorted columns into a new one
+        static DayColumns merge(DayColumns a, DayColumns b) {
+            int length = a.index.length + b.index.length;
+            int[] index = new int[length];
+            long[] units = new long[length];
+            double[] revenue = new double[length];
+            int i = 0, j = 0, n = 0;
+            while (i < a.index.length || j < b.index.length) {
+                if (j == b.index.length || (i < a.index.length && a.index[i] < b.index[j])) {
+                    index[n] = a.index[i];
+                    units[n] = a.units[i];
+                    revenue[n++] = a.revenue[i++];
+                } else if (i == a.index.length || b.index[j] < a.index[i]) {
+                    index[n] = b.index[j];
+                    units[n] = b.units[j];
+                    revenue[n++] = b.revenue[j++];
+                } else {
+                    index[n] = a.index[i];
+                    units[n] = a.units[i] + b.units[j];
+                    revenue[n++] = a.revenue[i++] + b.revenue[j++];
+                }
+            }
+            return new DayColumns(Arrays.copyOf(index, n), Arrays.copyOf(units, n), Arrays.copyOf(revenue, n));
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.StockAdjustment;
+import com.example.storebackend.dto.StockAdjustmentResult;
+import com.example.storebackend.dto.StockLevel;
+import com.example.storebackend.repository.ProductRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Applies relative stock changes in bulk. Deltas for the same product are summed first and
+ * sorted by product id, so rows are locked in the same order as checkouts lock them. They are
+ * then applied as conditional {@code stock = stock + delta} updates, one JDBC batch and one
+ * transaction per {@code store.stock.adjustment.batch-size} products, so no row is read before
+ * it is written and a change can never take stock below zero. The new levels are read back in
+ * the same transaction.
+ * <p>
+ * While the reservation engine is enabled it owns the stock, so the changes are applied to its
+ * counters instead and reach the table with its next flush. Counters not loaded yet are loaded
+ * with one query per chunk.
+ */
+@Slf4j
+@Service
+public class StockAdjustmentService {
+    private static final String ADJUST_SQL = "UPDATE product SET stock = stock + ? WHERE id = ? AND stock + ? >= 0";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final StockReservationService stockReservationService;
+    private final ProductCatalogCache catalogCache;
+    private final int batchSize;
+
+    @Autowired
+    public StockAdjustmentService(ProductRepository productRepository,
+                                  JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  StockReservationService stockReservationService,
+                                  ProductCatalogCache catalogCache,
+                                  @Value("${store.stock.adjustment.batch-size:1000}") int batchSize) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.stockReservationService = stockReservationService;
+        this.catalogCache = catalogCache;
+        this.batchSize = batchSize;
+    }
+
+    public StockAdjustmentResult adjustStock(List<StockAdjustment> adjustments) {
+        Map<Long, Integer> deltas = coalesce(adjustments);
+        List<StockLevel> levels = new ArrayList<>(deltas.size());
+        List<Long> notFound = new ArrayList<>();
+        List<Long> insufficientStock = new ArrayList<>();
+        try {
+            boolean reservations = stockReservationService.isEnabled();
+            List<Map.Entry<Long, Integer>> chunk = new ArrayList<>(batchSize);
+            for (Map.Entry<Long, Integer> delta : deltas.entrySet()) {
+                chunk.add(delta);
+                if (chunk.size() == batchSize) {
+                    adjust(reservations, chunk, levels, notFound, insufficientStock);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                adjust(reservations, chunk, levels, notFound, insufficientStock);
+            }
+        } catch (Exception e) {
+            log.error("Error adjusting stock after {} of {} products: {}",
+                    levels.size() + notFound.size() + insufficientStock.size(), deltas.size(), e.getMessage());
+            throw new RuntimeException("Error adjusting stock", e);
+        }
+        log.info("Adjusted stock of {} products ({} adjustments); {} not found, {} with insufficient stock.",
+                levels.size(), adjustments.size(), notFound.size(), insufficientStock.size());
+        return new StockAdjustmentResult(levels, notFound, insufficientStock);
+    }
+
+    private void adjust(boolean reservations, List<Map.Entry<Long, Integer>> chunk, List<StockLevel> levels,
+                        List<Long> notFound, List<Long> insufficientStock) {
+        if (reservations) {
+            adjustReservations(chunk, levels, notFound, insufficientStock);
+        } else {
+            adjustChunk(chunk, levels, notFound, insufficientStock);
+        }
+    }
+
+    private void adjustChunk(List<Map.Entry<Long, Integer>> chunk, List<StockLevel> levels,
+                             List<Long> notFound, List<Long> insufficientStock) {
+        List<Object[]> batch = new ArrayList<>(chunk.size());
+        List<Long> productIds = new ArrayList<>(chunk.size());
+        for (Map.Entry<Long, Integer> delta : chunk) {
+            batch.add(new Object[]{delta.getValue(), delta.getKey(), delta.getValue()});
+            productIds.add(delta.getKey());
+        }
+
+        // Reported only once the chunk has committed
+        List<StockLevel> chunkLevels = new ArrayList<>();
+        List<Long> chunkNotFound = new ArrayList<>();
+        List<Long> chunkInsufficientStock = new ArrayList<>();
+        Set<Long> existing = new HashSet<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(ADJUST_SQL, batch);
+            for (StockLevel level : productRepository.findStockLevels(productIds)) {
+                existing.add(level.productId());
+                chunkLevels.add(level);
+            }
+            Set<Long> applied = new HashSet<>();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    applied.add(productIds.get(i));
+                }
+            }
+            chunkLevels.removeIf(level -> !applied.contains(level.productId()));
+            for (Long productId : productIds) {
+                if (!existing.contains(productId)) {
+                    chunkNotFound.add(productId);
+                } else if (!applied.contains(productId)) {
+                    chunkInsufficientStock.add(productId);
+                }
+            }
+        });
+        levels.addAll(chunkLevels);
+        notFound.addAll(chunkNotFound);
+        insufficientStock.addAll(chunkInsufficientStock);
+        catalogCache.invalidateAll(productIds);
+    }
+
+    private void adjustReservations(List<Map.Entry<Long, Integer>> chunk, List<StockLevel> levels,
+                                    List<Long> notFound, List<Long> insufficientStock) {
+        List<Long> productIds = new ArrayList<>(chunk.size());
+        for (Map.Entry<Long, Integer> delta : chunk) {
+            productIds.add(delta.getKey());
+        }
+        Set<Long> existing = stockReservationService.loadAll(productIds);
+        for (Map.Entry<Long, Integer> delta : chunk) {
+            Long productId = delta.getKey();
+            if (!existing.contains(productId)) {
+                notFound.add(productId);
+            } else if (stockReservationService.adjust(productId, delta.getValue())) {
+                levels.add(new StockLevel(productId, stockReservationService.available(productId)));
+            } else {
+                insufficientStock.add(productId);
+            }
+        }
+    }
+
+    // Sums the deltas per product, in product id order
+    private static Map<Long, Integer> coalesce(List<StockAdjustment> adjustments) {
+        Map<Long, Integer> deltas = new TreeMap<>();
+        for (StockAdjustment adjustment : adjustments) {
+            if (adjustment.productId() == null) {
+                throw new IllegalArgumentException("Product ID is required.");
+            }
+            try {
+                deltas.merge(adjustment.productId(), adjustment.delta(), Math::addExact);
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException(String.format("Stock delta out of range for product %d.", adjustment.productId()));
+            }
+        }
+        return deltas;
+    }
+}
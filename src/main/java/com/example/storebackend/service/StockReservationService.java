@@ -0,0 +1,283 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.StockLevel;
+import com.example.storebackend.model.Product;
+import com.example.storebackend.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Grants and rejects stock reservations in memory so hot products do not serialize checkouts
+ * on their database row. Each product has a lock-free available counter and a pending delta;
+ * the pending deltas are written to the product table in one JDBC batch per flush interval.
+ * <p>
+ * Counters are loaded lazily from the database the first time a product is reserved, so after
+ * a restart the engine recovers from the last flushed stock. Deltas are flushed on their own
+ * schedule, not with the orders that caused them: a crash or kill between an order's commit and
+ * the next flush loses up to one flush interval of stock changes, and the products involved are
+ * oversold by that much after the restart. A clean shutdown flushes first. Only one node may run
+ * with the engine enabled, and stock must not be changed behind its back while it is.
+ */
+@Slf4j
+@Service
+public class StockReservationService {
+    private static final String FLUSH_SQL = "UPDATE product SET stock = stock + ? WHERE id = ?";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCatalogCache catalogCache;
+    private final boolean enabled;
+    private final Map<Long, StockCounter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StockReservationService(ProductRepository productRepository,
+                                   JdbcTemplate jdbcTemplate,
+                                   PlatformTransactionManager transactionManager,
+                                   ProductCatalogCache catalogCache,
+                                   @Value("${store.stock.reservation.enabled:false}") boolean enabled) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.catalogCache = catalogCache;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Takes {@code quantity} units of the product if they are available. When called inside a
+     * transaction, the units are given back automatically if that transaction rolls back.
+     *
+     * @return true if the reservation was granted
+     */
+    public boolean reserve(Long productId, int quantity) {
+        if (!counter(productId).tryTake(quantity)) {
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(productId, quantity);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Takes every quantity in {@code quantities}, keyed by product id, or none of them. When called
+     * inside a transaction, the units are given back automatically if that transaction rolls back.
+     *
+     * @return null if everything was reserved, otherwise the id of the first product that did not
+     * have enough stock
+     */
+    public Long reserveAll(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> taken = new ArrayList<>(quantities.size());
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            boolean granted;
+            try {
+                granted = counter(line.getKey()).tryTake(line.getValue());
+            } catch (RuntimeException e) {
+                taken.forEach(done -> release(done.getKey(), done.getValue()));
+                throw e;
+            }
+            if (!granted) {
+                taken.forEach(done -> release(done.getKey(), done.getValue()));
+                return line.getKey();
+            }
+            taken.add(line);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        taken.forEach(done -> release(done.getKey(), done.getValue()));
+                    }
+                }
+            });
+        }
+        return null;
+    }
+
+    /**
+     * Applies a relative stock change from outside the checkout path, such as a warehouse sync.
+     * Positive deltas always apply; negative ones only if enough stock is available.
+     *
+     * @return true if the change was applied
+     */
+    public boolean adjust(Long productId, int delta) {
+        StockCounter counter = counter(productId);
+        if (delta >= 0) {
+            counter.give(delta);
+            return true;
+        }
+        return counter.tryTake(-delta);
+    }
+
+    /**
+     * Replaces the available stock of the product, as an import does. The difference to the
+     * previous value is written by the next flush, so reservations taken meanwhile are kept.
+     */
+    public void setStock(Long productId, int stock) {
+        counter(productId).set(stock);
+    }
+
+    public void release(Long productId, int quantity) {
+        counter(productId).give(quantity);
+    }
+
+    /**
+     * Loads the counters of the given products that are not loaded yet, with a single query.
+     *
+     * @return the ids among {@code productIds} that exist and now have a counter
+     */
+    public Set<Long> loadAll(Collection<Long> productIds) {
+        Set<Long> loaded = new HashSet<>();
+        List<Long> missing = new ArrayList<>();
+        for (Long productId : productIds) {
+            if (counters.containsKey(productId)) {
+                loaded.add(productId);
+            } else {
+                missing.add(productId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (StockLevel level : productRepository.findStockLevels(missing)) {
+                counters.putIfAbsent(level.productId(), new StockCounter(level.stock()));
+                loaded.add(level.productId());
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Gives back every quantity in {@code quantities}, keyed by product id. When called inside a
+     * transaction, the units are only given back once that transaction commits.
+     */
+    public void releaseAll(Map<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            quantities.forEach(this::release);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                quantities.forEach(StockReservationService.this::release);
+            }
+        });
+    }
+
+    public int available(Long productId) {
+        return counter(productId).available.get();
+    }
+
+    @Scheduled(fixedDelayString = "${store.stock.reservation.flush-interval-ms:500}")
+    public void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        List<StockCounter> drained = new ArrayList<>();
+        List<Long> productIds = new ArrayList<>();
+        counters.forEach((productId, counter) -> {
+            int delta = counter.drain();
+            if (delta != 0) {
+                batch.add(new Object[]{delta, productId});
+                drained.add(counter);
+                productIds.add(productId);
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(FLUSH_SQL, batch));
+            catalogCache.invalidateAll(productIds);
+            log.debug("Flushed stock deltas for {} products.", batch.size());
+        } catch (Exception e) {
+            // Nothing was committed, so keep the deltas for the next flush
+            for (int i = 0; i < drained.size(); i++) {
+                drained.get(i).pendingDelta.addAndGet((Integer) batch.get(i)[0]);
+            }
+            log.error("Error flushing stock deltas: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private StockCounter counter(Long productId) {
+        StockCounter counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        // Load outside computeIfAbsent: a database call inside its bin lock would pin virtual threads
+        Product product = productRepository.findById(productId).orElseThrow(() -> {
+            log.error("Product with ID {} not found.", productId);
+            return new IllegalArgumentException("Product not found.");
+        });
+        StockCounter loaded = new StockCounter(product.getStock());
+        counter = counters.putIfAbsent(productId, loaded);
+        return counter != null ? counter : loaded;
+    }
+
+    private static final class StockCounter {
+        private final AtomicInteger available;
+        private final AtomicInteger pendingDelta = new AtomicInteger();
+
+        private StockCounter(int initialStock) {
+            this.available = new AtomicInteger(initialStock);
+        }
+
+        private boolean tryTake(int quantity) {
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            pendingDelta.addAndGet(-quantity);
+            return true;
+        }
+
+        private void give(int quantity) {
+            available.addAndGet(quantity);
+            pendingDelta.addAndGet(quantity);
+        }
+
+        private void set(int stock) {
+            int previous = available.getAndSet(stock);
+            pendingDelta.addAndGet(stock - previous);
+        }
+
+        private int drain() {
+            return pendingDelta.getAndSet(0);
+        }
+    }
+}
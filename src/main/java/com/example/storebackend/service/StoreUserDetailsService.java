@@ -0,0 +1,33 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.configuration.AuthenticatedUser;
+import com.example.storebackend.dto.UserAccount;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Loads users for authentication from the {@code user} table, through {@link UserAccountCache}.
+ */
+@Service
+public class StoreUserDetailsService implements UserDetailsService {
+    private final UserAccountCache userAccountCache;
+
+    @Autowired
+    public StoreUserDetailsService(UserAccountCache userAccountCache) {
+        this.userAccountCache = userAccountCache;
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserAccount account = userAccountCache.getByUsername(username);
+        if (account == null || account.password() == null) {
+            throw new UsernameNotFoundException("User not found.");
+        }
+        return new AuthenticatedUser(account.id(), account.username(), account.password(),
+                AuthorityUtils.createAuthorityList("ROLE_" + account.role().name()));
+    }
+}
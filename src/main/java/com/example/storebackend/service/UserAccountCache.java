@@ -0,0 +1,89 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.UserAccount;
+import com.example.storebackend.model.User;
+import com.example.storebackend.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Bounded read-through cache of user accounts by username and by id, shared by authentication
+ * and checkout. A user loaded either way is cached under both keys. Entries expire after a fixed
+ * time and are evicted by size; hit, miss and eviction counts are published as the
+ * {@code users} and {@code users-by-id} cache metrics.
+ * <p>
+ * As in {@link ProductCatalogCache}, loads run outside the cache's locks, so concurrent misses on
+ * the same user may each load it once.
+ */
+@Component
+public class UserAccountCache {
+    private final UserRepository userRepository;
+    private final Cache<String, UserAccount> byUsername;
+    private final Cache<Long, UserAccount> byId;
+
+    @Autowired
+    public UserAccountCache(UserRepository userRepository,
+                            @Value("${store.users.cache.maximum-size:10000}") long maximumSize,
+                            @Value("${store.users.cache.ttl:5m}") Duration ttl,
+                            MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.byUsername = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, byUsername, "users");
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "users-by-id");
+    }
+
+    /**
+     * The account named {@code username}, or null if there is none.
+     */
+    public UserAccount getByUsername(String username) {
+        UserAccount account = byUsername.getIfPresent(username);
+        if (account == null) {
+            User user = userRepository.findByUsername(username);
+            account = user == null ? null : cache(UserAccount.of(user));
+        }
+        return account;
+    }
+
+    /**
+     * The account with id {@code userId}, or null if there is none.
+     */
+    public UserAccount getById(Long userId) {
+        UserAccount account = byId.getIfPresent(userId);
+        if (account == null) {
+            account = userRepository.findById(userId)
+                    .map(user -> cache(UserAccount.of(user)))
+                    .orElse(null);
+        }
+        return account;
+    }
+
+    /**
+     * Drops the account of {@code username}, e.g. after its password or role changed.
+     */
+    public void invalidate(String username) {
+        byUsername.invalidate(username);
+        byId.asMap().values().removeIf(account -> account.username().equals(username));
+    }
+
+    private UserAccount cache(UserAccount account) {
+        byUsername.put(account.username(), account);
+        byId.put(account.id(), account);
+        return account;
+    }
+}
@@ -1,9 +1,91 @@
 package com.example.storebackend.service;
 
+import com.example.storebackend.configuration.CachingAuthenticationProvider;
+import com.example.storebackend.model.Role;
+import com.example.storebackend.model.User;
+import com.example.storebackend.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+
+@Slf4j
 @Service
 public class UserService {
+    private final UserRepository userRepository;
+    private final UserAccountCache userAccountCache;
+    private final PasswordEncoder passwordEncoder;
+    private final CachingAuthenticationProvider authenticationProvider;
+    private final AuthTokenService authTokenService;
+    private final boolean seedDefaultUsers;
+
+    @Autowired
+    public UserService(UserRepository userRepository, UserAccountCache userAccountCache, PasswordEncoder passwordEncoder,
+                       CachingAuthenticationProvider authenticationProvider, AuthTokenService authTokenService,
+                       @Value("${store.auth.seed-default-users:false}") boolean seedDefaultUsers) {
+        this.userRepository = userRepository;
+        this.userAccountCache = userAccountCache;
+        this.passwordEncoder = passwordEncoder;
+        this.authenticationProvider = authenticationProvider;
+        this.authTokenService = authTokenService;
+        this.seedDefaultUsers = seedDefaultUsers;
+    }
+
+    /**
+     * Creates the default {@code user} and {@code admin} accounts if they do not exist yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedDefaultUsers() {
+        if (!seedDefaultUsers) {
+            return;
+        }
+        createIfMissing("user", "user_password", Role.USER);
+        createIfMissing("admin", "admin_password", Role.ADMIN);
+    }
+
+    /**
+     * Sets a new password; cached verifications of the old one and tokens issued before the
+     * change stop working at once.
+     */
+    public void changePassword(String username, String newPassword) {
+        if (newPassword == null || newPassword.isBlank()) {
+            throw new IllegalArgumentException("The new password must not be blank.");
+        }
+        try {
+            User user = userRepository.findByUsername(username);
+            if (user == null) {
+                throw new IllegalArgumentException("User not found.");
+            }
+            user.setPassword(passwordEncoder.encode(newPassword));
+            userRepository.save(user);
+        } catch (IllegalArgumentException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error changing the password of user {}: {}", username, e.getMessage());
+            throw new RuntimeException("Error changing password", e);
+        }
+        userAccountCache.invalidate(username);
+        authenticationProvider.invalidate(username);
+        authTokenService.revoke(username);
+        log.info("Changed the password of user {}.", username);
+    }
 
-    // User-related business logic
+    private void createIfMissing(String username, String password, Role role) {
+        if (userRepository.findByUsername(username) != null) {
+            return;
+        }
+        try {
+            userRepository.save(new User(username, passwordEncoder.encode(password), role));
+            log.info("Created default {} account {}.", role.name().toLowerCase(Locale.ROOT), username);
+        } catch (DataIntegrityViolationException e) {
+            // Another node created it first
+            log.debug("Default account {} already exists.", username);
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Moves id generation from AUTO_INCREMENT to the table-backed sequences Hibernate uses on MySQL.
+ * Each sequence table holds the next id to hand out (pooled-lo), so it is seeded just above the
+ * largest existing id. Entity tables that do not exist yet (a fresh database) start at 1; their
+ * AUTO_INCREMENT columns are left in place and simply no longer used.
+ */
+public class V2__Seed_id_sequences extends BaseJavaMigration {
+    // Entity table -> table emulating its id sequence
+    private static final Map<String, String> SEQUENCES = new LinkedHashMap<>();
+
+    static {
+        SEQUENCES.put("product", "product_seq");
+        SEQUENCES.put("orders", "orders_seq");
+        SEQUENCES.put("order_item", "order_item_seq");
+        SEQUENCES.put("user", "user_seq");
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (Statement statement = connection.createStatement()) {
+            for (Map.Entry<String, String> sequence : SEQUENCES.entrySet()) {
+                long nextId = 1;
+                if (tableExists(connection, metaData, sequence.getKey())) {
+                    try (ResultSet maxId = statement.executeQuery(
+                            "SELECT COALESCE(MAX(id), 0) + 1 FROM `" + sequence.getKey() + "`")) {
+                        maxId.next();
+                        nextId = maxId.getLong(1);
+                    }
+                }
+                if (tableExists(connection, metaData, sequence.getValue())) {
+                    statement.executeUpdate("UPDATE " + sequence.getValue() + " SET next_val = GREATEST(next_val, " + nextId + ")");
+                } else {
+                    statement.execute("CREATE TABLE " + sequence.getValue() + " (next_val BIGINT) ENGINE=InnoDB");
+                    statement.executeUpdate("INSERT INTO " + sequence.getValue() + " VALUES (" + nextId + ")");
+                }
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection connection, DatabaseMetaData metaData, String table) throws SQLException {
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+}
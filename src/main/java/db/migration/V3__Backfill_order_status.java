@@ -0,0 +1,51 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Gives orders placed before payments became asynchronous a status and a creation time. Such
+ * orders were paid during checkout, so they become PAID; their real creation time was never
+ * recorded, so they get the time of this migration. Flyway runs before Hibernate updates the
+ * schema, so the two columns are added here if they do not exist yet. A fresh database has no
+ * orders table and nothing to backfill.
+ */
+public class V3__Backfill_order_status extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        DatabaseMetaData metaData = connection.getMetaData();
+        if (!tableExists(connection, metaData)) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            if (!columnExists(connection, metaData, "status")) {
+                statement.execute("ALTER TABLE orders ADD COLUMN status VARCHAR(32)");
+            }
+            if (!columnExists(connection, metaData, "created_at")) {
+                statement.execute("ALTER TABLE orders ADD COLUMN created_at DATETIME(6)");
+            }
+            statement.executeUpdate("UPDATE orders SET status = 'PAID' WHERE status IS NULL");
+            statement.executeUpdate("UPDATE orders SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL");
+        }
+    }
+
+    private static boolean tableExists(Connection connection, DatabaseMetaData metaData) throws SQLException {
+        try (ResultSet tables = metaData.getTables(connection.getCatalog(), null, "orders", new String[]{"TABLE"})) {
+            return tables.next();
+        }
+    }
+
+    private static boolean columnExists(Connection connection, DatabaseMetaData metaData, String column) throws SQLException {
+        try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, "orders", column)) {
+            return columns.next();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.storebackend.configuration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CachingAuthenticationProviderTest {
+
+    @Mock
+    private AuthenticationProvider delegate;
+
+    private SimpleMeterRegistry meterRegistry;
+    private CachingAuthenticationProvider provider;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        provider = new CachingAuthenticationProvider(delegate, meterRegistry, 100, Duration.ofMinutes(5));
+        when(delegate.authenticate(argThat(auth -> auth != null && "secret".equals(auth.getCredentials()))))
+                .thenAnswer(invocation -> UsernamePasswordAuthenticationToken.authenticated(
+                        ((Authentication) invocation.getArgument(0)).getName(), null,
+                        AuthorityUtils.createAuthorityList("ROLE_USER")));
+        when(delegate.authenticate(argThat(auth -> auth != null && !"secret".equals(auth.getCredentials()))))
+                .thenThrow(new BadCredentialsException("Bad credentials"));
+    }
+
+    @Test
+    void authenticate_shouldCheckTheSameCredentialsOnce() {
+        Authentication first = provider.authenticate(login("user", "secret"));
+        Authentication second = provider.authenticate(login("user", "secret"));
+
+        verify(delegate, times(1)).authenticate(any());
+        assertTrue(second.isAuthenticated());
+        assertEquals("user", second.getName());
+        assertEquals(first.getAuthorities(), second.getAuthorities());
+        assertNull(second.getCredentials());
+        assertEquals(1.0, meterRegistry.counter("store.auth.cache", "result", "hit").count());
+    }
+
+    @Test
+    void authenticate_shouldNeverCacheWrongPasswords() {
+        provider.authenticate(login("user", "secret"));
+
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("user", "guess")));
+        assertThrows(BadCredentialsException.class, () -> provider.authenticate(login("user", "guess")));
+        verify(delegate, times(3)).authenticate(any());
+    }
+
+    @Test
+    void invalidate_shouldForceAFullCheck() {
+        provider.authenticate(login("user", "secret"));
+        provider.authenticate(login("admin", "secret"));
+
+        provider.invalidate("user");
+        provider.authenticate(login("user", "secret"));
+        provider.authenticate(login("admin", "secret"));
+
+        verify(delegate, times(3)).authenticate(any());
+    }
+
+    private static UsernamePasswordAuthenticationToken login(String username, String password) {
+        return UsernamePasswordAuthenticationToken.unauthenticated(username, password);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.storebackend.configuration;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatementCounterTest {
+
+    private final StatementCounter statementCounter = new StatementCounter();
+
+    @Test
+    void inspect_shouldCountStatementsWhileACountIsOpen() {
+        statementCounter.start();
+        assertEquals("select 1", statementCounter.inspect("select 1"));
+        statementCounter.inspect("select 2");
+
+        assertEquals(2, statementCounter.stop());
+    }
+
+    @Test
+    void stop_shouldReturnZeroWithoutAnOpenCount() {
+        statementCounter.inspect("select 1");
+
+        assertEquals(0, statementCounter.stop());
+    }
+
+    @Test
+    void inspect_shouldNotCountStatementsOfOtherThreads() throws InterruptedException {
+        statementCounter.start();
+        Thread other = new Thread(() -> statementCounter.inspect("select 1"));
+        other.start();
+        other.join();
+
+        assertEquals(0, statementCounter.stop());
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.storebackend.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+/**
+ * Drives a mix of browse, cart and checkout traffic against a running application, usually one
+ * started with the {@code loadtest} profile, and prints the throughput and latency percentiles of
+ * each endpoint. Not a test; run it with
+ * {@code mvn -Ploadtest test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.example.storebackend.loadtest.LoadTestClient -Dexec.args="--threads=64"}.
+ * <p>
+ * Each thread logs in as its own generated user ({@code loaduser1} and up) and sends requests
+ * back to back, picking a browse, cart or checkout step at random by weight. Latencies are
+ * measured from sending a request to reading its whole response, after a warm-up period that is
+ * not recorded. The threads wait for each response before sending the next request, so when the
+ * server stalls fewer requests are measured and the high percentiles understate the stall.
+ * <p>
+ * Options, all {@code --name=value}: {@code base-url} (http://localhost:8080), {@code threads}
+ * (32), {@code warmup} (10s), {@code duration} (60s), {@code users} (1000), {@code products}
+ * (10000), {@code password} (loadtest_password), {@code auth} ({@code basic} or {@code token}),
+ * {@code browse}, {@code cart} and {@code checkout} (step weights, 60, 30 and 10),
+ * {@code lookup} and {@code order} (weights of single {@code GET /products/{id}} and
+ * {@code POST /orders} steps, 0, to measure one endpoint alone) and {@code cart-lines} (most
+ * lines per checkout, 5). {@code users} and {@code products} must not
+ * exceed the volumes the server generated.
+ */
+public final class LoadTestClient {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(10);
+
+    private final Options options;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    record Options(String baseUrl, int threads, Duration warmup, Duration duration, int users, int products,
+                   String password, boolean tokenAuth, int browseWeight, int cartWeight, int checkoutWeight,
+                   int lookupWeight, int orderWeight, int cartLines) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got " + arg);
+                }
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+            String auth = values.getOrDefault("auth", "basic");
+            if (!auth.equals("basic") && !auth.equals("token")) {
+                throw new IllegalArgumentException("auth must be basic or token.");
+            }
+            return new Options(
+                    values.getOrDefault("base-url", "http://localhost:8080"),
+                    Integer.parseInt(values.getOrDefault("threads", "32")),
+                    parseDuration(values.getOrDefault("warmup", "10s")),
+                    parseDuration(values.getOrDefault("duration", "60s")),
+                    Integer.parseInt(values.getOrDefault("users", "1000")),
+                    Integer.parseInt(values.getOrDefault("products", "10000")),
+                    values.getOrDefault("password", "loadtest_password"),
+                    auth.equals("token"),
+                    Integer.parseInt(values.getOrDefault("browse", "60")),
+                    Integer.parseInt(values.getOrDefault("cart", "30")),
+                    Integer.parseInt(values.getOrDefault("checkout", "10")),
+                    Integer.parseInt(values.getOrDefault("lookup", "0")),
+                    Integer.parseInt(values.getOrDefault("order", "0")),
+                    Integer.parseInt(values.getOrDefault("cart-lines", "5")));
+        }
+
+        // Seconds, as "30s" or "30"
+        private static Duration parseDuration(String value) {
+            return Duration.ofSeconds(Long.parseLong(value.endsWith("s") ? value.substring(0, value.length() - 1) : value));
+        }
+    }
+
+    // Latencies in microseconds and failures of one endpoint, owned by one thread until merged
+    private static final class EndpointStats {
+        private final Histogram latencies = new Histogram(3);
+        private long errors;
+
+        void add(EndpointStats other) {
+            latencies.add(other.latencies);
+            errors += other.errors;
+        }
+    }
+
+    private LoadTestClient(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        new LoadTestClient(Options.parse(args)).run();
+    }
+
+    private void run() throws InterruptedException {
+        awaitReady();
+        System.out.printf("Running %d threads for %ds after %ds of warm-up against %s (%s auth).%n",
+                options.threads(), options.duration().toSeconds(), options.warmup().toSeconds(), options.baseUrl(),
+                options.tokenAuth() ? "token" : "basic");
+
+        long measureFrom = System.nanoTime() + options.warmup().toNanos();
+        long measureUntil = measureFrom + options.duration().toNanos();
+        List<Worker> workers = new ArrayList<>(options.threads());
+        List<Thread> threads = new ArrayList<>(options.threads());
+        for (int i = 0; i < options.threads(); i++) {
+            Worker worker = new Worker(i % options.users() + 1, i, measureFrom, measureUntil);
+            Thread thread = new Thread(worker, "load-" + i);
+            workers.add(worker);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Map<String, EndpointStats> merged = new TreeMap<>();
+        for (Worker worker : workers) {
+            worker.stats.forEach((endpoint, stats) -> merged.computeIfAbsent(endpoint, e -> new EndpointStats()).add(stats));
+        }
+        report(merged);
+    }
+
+    // Polls the health endpoint, which reports the application down until the data is generated
+    private void awaitReady() throws InterruptedException {
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(options.baseUrl() + "/actuator/health")).build();
+        while (true) {
+            try {
+                if (httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("The application was not ready within " + STARTUP_TIMEOUT);
+            }
+            Thread.sleep(1000);
+        }
+    }
+
+    private void report(Map<String, EndpointStats> stats) {
+        double seconds = options.duration().toNanos() / 1e9;
+        EndpointStats total = new EndpointStats();
+        System.out.printf("%n%-24s %10s %8s %10s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        stats.forEach((endpoint, endpointStats) -> {
+            printRow(endpoint, endpointStats, seconds);
+            total.add(endpointStats);
+        });
+        printRow("total", total, seconds);
+    }
+
+    private static void printRow(String endpoint, EndpointStats stats, double seconds) {
+        Histogram latencies = stats.latencies;
+        System.out.printf("%-24s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                endpoint, latencies.getTotalCount(), stats.errors, latencies.getTotalCount() / seconds,
+                latencies.getValueAtPercentile(50) / 1000.0, latencies.getValueAtPercentile(99) / 1000.0,
+                latencies.getValueAtPercentile(99.9) / 1000.0, latencies.getMaxValue() / 1000.0);
+    }
+
+    private final class Worker implements Runnable {
+        private final String username;
+        private final SplittableRandom random;
+        private final long measureFrom;
+        private final long measureUntil;
+        private final Map<String, EndpointStats> stats = new HashMap<>();
+        private String authorization;
+
+        Worker(int user, int seed, long measureFrom, long measureUntil) {
+            this.username = "loaduser" + user;
+            this.random = new SplittableRandom(seed);
+            this.measureFrom = measureFrom;
+            this.measureUntil = measureUntil;
+        }
+
+        @Override
+        public void run() {
+            String credentials = username + ":" + options.password();
+            authorization = "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8));
+            try {
+                if (options.tokenAuth()) {
+                    authorization = "Bearer " + fetchToken();
+                }
+            } catch (IOException | InterruptedException e) {
+                System.err.printf("%s could not get a token: %s%n", username, e.getMessage());
+                return;
+            }
+            int[] weights = {options.browseWeight(), options.cartWeight(), options.checkoutWeight(),
+                    options.lookupWeight(), options.orderWeight()};
+            int totalWeight = 0;
+            for (int weight : weights) {
+                totalWeight += weight;
+            }
+            while (System.nanoTime() < measureUntil) {
+                int roll = random.nextInt(totalWeight);
+                int step = 0;
+                while (roll >= weights[step]) {
+                    roll -= weights[step++];
+                }
+                switch (step) {
+                    case 0 -> browse();
+                    case 1 -> changeCart();
+                    case 2 -> checkout();
+                    case 3 -> send("GET /products/{id}", get("/products/" + productId()));
+                    default -> order();
+                }
+            }
+        }
+
+        private void browse() {
+            send("GET /products", get("/products?size=20&after=" + random.nextInt(options.products())));
+            send("GET /products/{id}", get("/products/" + productId()));
+        }
+
+        // Adds a line, views the cart and takes the line out again, so carts stay small
+        private void changeCart() {
+            long productId = productId();
+            send("POST /cart/add", request("/cart/add")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"productId\":" + productId + ",\"quantity\":1}"))
+                    .build());
+            send("GET /cart", get("/cart"));
+            send("DELETE /cart/remove", request("/cart/remove?productId=" + productId).DELETE().build());
+        }
+
+        private void checkout() {
+            order();
+            send("GET /orders/summary", get("/orders/summary"));
+        }
+
+        private void order() {
+            int lines = 1 + random.nextInt(options.cartLines());
+            // Consecutive ids, as an order has one line per product
+            long first = 1 + random.nextInt(Math.max(options.products() - lines, 1));
+            StringBuilder cart = new StringBuilder("[");
+            for (int i = 0; i < lines; i++) {
+                cart.append(i == 0 ? "" : ",")
+                        .append("{\"productId\":").append(first + i).append(",\"quantity\":1}");
+            }
+            send("POST /orders", request("/orders")
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(cart.append(']').toString()))
+                    .build());
+        }
+
+        private long productId() {
+            return 1 + random.nextInt(options.products());
+        }
+
+        private HttpRequest get(String path) {
+            return request(path).GET().build();
+        }
+
+        private HttpRequest.Builder request(String path) {
+            return HttpRequest.newBuilder(URI.create(options.baseUrl() + path))
+                    .header("Authorization", authorization)
+                    .timeout(Duration.ofSeconds(30));
+        }
+
+        private void send(String endpoint, HttpRequest request) {
+            long start = System.nanoTime();
+            boolean failed;
+            try {
+                failed = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode() >= 400;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long end = System.nanoTime();
+            if (start < measureFrom || end > measureUntil) {
+                return;
+            }
+            EndpointStats endpointStats = stats.computeIfAbsent(endpoint, e -> new EndpointStats());
+            if (failed) {
+                endpointStats.errors++;
+            } else {
+                endpointStats.latencies.recordValue((end - start) / 1000);
+            }
+        }
+
+        private String fetchToken() throws IOException, InterruptedException {
+            HttpRequest request = request("/auth/token").POST(HttpRequest.BodyPublishers.noBody()).build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("POST /auth/token returned " + response.statusCode());
+            }
+            JsonNode body = MAPPER.readTree(response.body());
+            return body.get("token").asText();
+        }
+    }
+}
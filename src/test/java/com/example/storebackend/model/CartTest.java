@@ -0,0 +1,93 @@
+package com.example.storebackend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CartTest {
+
+    @Test
+    void add_shouldCreateLineOrIncrementQuantity() {
+        Cart cart = new Cart();
+
+        assertEquals(2, cart.add(1L, 2));
+        assertEquals(5, cart.add(1L, 3));
+        assertEquals(1, cart.add(2L, 1));
+
+        assertEquals(2, cart.size());
+        assertEquals(5, cart.get(1L));
+        assertEquals(1, cart.get(2L));
+        assertEquals(0, cart.get(3L));
+    }
+
+    @Test
+    void remove_shouldDropOnlyTheGivenLine() {
+        Cart cart = new Cart();
+        cart.add(1L, 2);
+        cart.add(2L, 3);
+
+        assertTrue(cart.remove(1L));
+        assertFalse(cart.remove(1L));
+
+        assertEquals(1, cart.size());
+        assertEquals(0, cart.get(1L));
+        assertEquals(3, cart.get(2L));
+    }
+
+    @Test
+    void add_shouldRejectNonPositiveProductId() {
+        Cart cart = new Cart();
+
+        assertThrows(IllegalArgumentException.class, () -> cart.add(0L, 1));
+    }
+
+    @Test
+    void shouldMatchHashMapUnderRandomOperations() {
+        Cart cart = new Cart();
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long productId = 1 + random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(productId) != null, cart.remove(productId));
+            } else {
+                int quantity = 1 + random.nextInt(5);
+                assertEquals((int) expected.merge(productId, quantity, Integer::sum), cart.add(productId, quantity));
+            }
+        }
+
+        assertEquals(expected.size(), cart.size());
+        expected.forEach((productId, quantity) -> assertEquals(quantity, cart.get(productId)));
+    }
+
+    @Test
+    void shouldSurviveSerialization() throws Exception {
+        Cart cart = new Cart();
+        for (long productId = 1; productId <= 300; productId++) {
+            cart.add(productId, (int) productId);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(cart);
+        }
+        Cart copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (Cart) in.readObject();
+        }
+
+        assertEquals(300, copy.size());
+        for (long productId = 1; productId <= 300; productId++) {
+            assertEquals((int) productId, copy.get(productId));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.storebackend.repository;
+
+import com.example.storebackend.model.Cart;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileCartStoreTest {
+
+    @TempDir
+    Path directory;
+
+    private FileCartStore cartStore;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cartStore = new FileCartStore(directory, Duration.ofMinutes(30));
+    }
+
+    @Test
+    void update_shouldPersistCartAcrossStoreInstances() throws Exception {
+        cartStore.update("user", cart -> {
+            cart.add(1L, 2);
+            cart.add(2L, 5);
+        });
+
+        // A new instance over the same directory stands in for a restart or another node
+        Cart cart = new FileCartStore(directory, Duration.ofMinutes(30)).load("user");
+
+        assertEquals(2, cart.size());
+        assertEquals(2, cart.get(1L));
+        assertEquals(5, cart.get(2L));
+    }
+
+    @Test
+    void load_shouldReturnEmptyCartForUnknownUser() {
+        assertTrue(cartStore.load("nobody").isEmpty());
+    }
+
+    @Test
+    void update_shouldDeleteCartThatBecomesEmpty() throws Exception {
+        cartStore.update("user", cart -> cart.add(1L, 2));
+        cartStore.update("user", cart -> cart.remove(1L));
+
+        assertEquals(0, cartFileCount());
+    }
+
+    @Test
+    void load_shouldIgnoreAndRemoveExpiredCart() throws Exception {
+        cartStore.update("user", cart -> cart.add(1L, 2));
+        expireAll();
+
+        assertTrue(cartStore.load("user").isEmpty());
+        assertEquals(0, cartFileCount());
+    }
+
+    @Test
+    void purgeExpired_shouldRemoveOnlyExpiredCarts() throws Exception {
+        cartStore.update("old", cart -> cart.add(1L, 2));
+        expireAll();
+        cartStore.update("recent", cart -> cart.add(1L, 2));
+
+        cartStore.purgeExpired();
+
+        assertTrue(cartStore.load("old").isEmpty());
+        assertEquals(2, cartStore.load("recent").get(1L));
+    }
+
+    @Test
+    void update_shouldNotLoseConcurrentChanges() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> updates = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                updates.add(executor.submit(() -> cartStore.update("user", cart -> cart.add(1L, 1))));
+            }
+            for (Future<?> update : updates) {
+                update.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(200, cartStore.load("user").get(1L));
+    }
+
+    private long cartFileCount() throws Exception {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".cart")).count();
+        }
+    }
+
+    private void expireAll() throws Exception {
+        FileTime past = FileTime.from(Instant.now().minus(Duration.ofHours(1)));
+        try (var files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.setLastModifiedTime(file, past);
+            }
+        }
+    }
+}
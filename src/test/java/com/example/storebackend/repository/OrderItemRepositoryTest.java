@@ -0,0 +1,71 @@
+package com.example.storebackend.repository;
+
+import com.example.storebackend.dto.ProductSales;
+import com.example.storebackend.model.Order;
+import com.example.storebackend.model.OrderItem;
+import com.example.storebackend.model.OrderStatus;
+import com.example.storebackend.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderItemRepositoryTest {
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User user;
+    private Instant createdAt;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("testUser", "password"));
+        createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        // Placed before orders had a payment status
+        persistOrder(null, 1);
+        persistOrder(OrderStatus.PAID, 2);
+        persistOrder(OrderStatus.PENDING, 4);
+        persistOrder(OrderStatus.PAYMENT_FAILED, 8);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void findSalesBetween_shouldCountPaidOrdersAndOrdersWithoutStatus() {
+        List<ProductSales> sales = orderItemRepository.findSalesBetween(createdAt, createdAt.plusSeconds(1));
+
+        assertEquals(List.of(new ProductSales(1L, 3L, 30.0)), sales);
+    }
+
+    @Test
+    void findTopSalesBetween_shouldLeaveOutOnlyFailedPayments() {
+        List<ProductSales> sales = orderItemRepository.findTopSalesBetween(createdAt, createdAt.plusSeconds(1),
+                PageRequest.of(0, 10));
+
+        assertEquals(List.of(new ProductSales(1L, 7L, 70.0)), sales);
+    }
+
+    private void persistOrder(OrderStatus status, int quantity) {
+        Order order = new Order(null, user, new ArrayList<>(), 10.0 * quantity, status, createdAt);
+        order.getOrderItems().add(OrderItem.builder().order(order).productId(1L).quantity(quantity).price(10.0).build());
+        entityManager.persist(order);
+    }
+}
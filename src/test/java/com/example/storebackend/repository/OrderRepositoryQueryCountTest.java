@@ -0,0 +1,146 @@
+package com.example.storebackend.repository;
+
+import com.example.storebackend.dto.OrderView;
+import com.example.storebackend.model.Order;
+import com.example.storebackend.model.OrderItem;
+import com.example.storebackend.model.OrderStatus;
+import com.example.storebackend.model.User;
+import com.example.storebackend.service.OrderViewService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Query budgets for the order read paths: each endpoint must issue a fixed number of SQL
+ * statements, however many orders and items are involved. Saving an order must not cost one
+ * statement per item either. {@link OrderViewService} is built by
+ * hand because the JPA slice does not load services.
+ */
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class OrderRepositoryQueryCountTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Statistics statistics;
+    private User user;
+    private Long firstOrderId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+
+        user = entityManager.persist(new User("testUser", "password"));
+        for (int i = 0; i < 5; i++) {
+            Order order = new Order(null, user, new ArrayList<>(), 0.0, OrderStatus.PENDING, Instant.now());
+            for (long productId = 1; productId <= 3; productId++) {
+                order.getOrderItems().add(OrderItem.builder()
+                        .order(order)
+                        .productId(productId)
+                        .quantity(1)
+                        .price(10.0)
+                        .build());
+            }
+            entityManager.persist(order);
+            if (firstOrderId == null) {
+                firstOrderId = order.getId();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getOrderById_shouldUseOneStatement() {
+        long statements = countStatements(() -> {
+            Order order = orderRepository.findWithItemsById(firstOrderId).orElseThrow();
+            // Touch everything the JSON response serializes
+            assertEquals("testUser", order.getUser().getUsername());
+            assertEquals(3, order.getOrderItems().size());
+            return order;
+        });
+
+        assertEquals(1, statements);
+    }
+
+    @Test
+    void getUserOrders_shouldUseTwoStatements() {
+        OrderViewService orderViewService = new OrderViewService(orderRepository, orderItemRepository, 100, 1000);
+
+        long statements = countStatements(() -> {
+            List<OrderView> orders = orderViewService.getUserOrders(user.getId());
+            assertEquals(5, orders.size());
+            for (OrderView order : orders) {
+                assertEquals(user.getId(), order.userId());
+                assertEquals(3, order.orderItems().size());
+            }
+            return orders;
+        });
+
+        // One for the order rows, one for all of their items
+        assertEquals(2, statements);
+    }
+
+    @Test
+    void getOrdersPage_shouldUseTwoStatements() {
+        OrderViewService orderViewService = new OrderViewService(orderRepository, orderItemRepository, 100, 1000);
+
+        long statements = countStatements(() -> {
+            List<OrderView> orders = orderViewService.getOrdersPage(null, 3);
+            assertEquals(3, orders.size());
+            return orders;
+        });
+
+        assertEquals(2, statements);
+    }
+
+    @Test
+    void saveOrder_shouldBatchItemInserts() {
+        Order order = new Order(null, user, new ArrayList<>(), 0.0, OrderStatus.PENDING, Instant.now());
+        for (long productId = 1; productId <= 100; productId++) {
+            order.getOrderItems().add(OrderItem.builder()
+                    .order(order)
+                    .productId(productId)
+                    .quantity(1)
+                    .price(10.0)
+                    .build());
+        }
+
+        long statements = countStatements(() -> {
+            orderRepository.saveAndFlush(order);
+            return order;
+        });
+
+        // A few sequence reads plus the order insert and two 50-row item batches, instead of 101 inserts
+        assertTrue(statements <= 10, "Saving a 100-item order took " + statements + " statements");
+        assertEquals(100, statistics.getEntityInsertCount() - 1);
+    }
+
+    private long countStatements(Supplier<?> readPath) {
+        statistics.clear();
+        readPath.get();
+        return statistics.getPrepareStatementCount();
+    }
+}
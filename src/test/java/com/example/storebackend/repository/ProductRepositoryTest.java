@@ -0,0 +1,45 @@
+package com.example.storebackend.repository;
+
+import com.example.storebackend.dto.ProductView;
+import com.example.storebackend.model.Product;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class ProductRepositoryTest {
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void streamAllViews_shouldStreamTheCatalogInIdOrder() {
+        List<Product> products = new ArrayList<>();
+        // More than one fetch of rows
+        for (int i = 0; i < 2500; i++) {
+            products.add(new Product(null, "Product " + i, 1.0 + i, i));
+        }
+        productRepository.saveAll(products);
+        productRepository.flush();
+
+        List<Long> ids;
+        try (Stream<ProductView> views = productRepository.streamAllViews()) {
+            ids = views.map(ProductView::id).toList();
+        }
+
+        assertEquals(2500, ids.size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(ids.get(i - 1) < ids.get(i));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.storebackend.repository;
+
+import com.example.storebackend.model.Order;
+import com.example.storebackend.model.OrderStatus;
+import com.example.storebackend.model.User;
+import com.example.storebackend.model.UserOrderSummary;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("h2")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UserOrderSummaryRepositoryTest {
+
+    @Autowired
+    private UserOrderSummaryRepository summaryRepository;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("testUser", "password"));
+    }
+
+    @Test
+    void recordOrder_shouldCreateThenAccumulateSummary() {
+        Instant first = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Instant second = first.plusSeconds(60);
+
+        summaryRepository.recordOrder(user.getId(), 100.0, first);
+        summaryRepository.recordOrder(user.getId(), 50.0, second);
+        entityManager.clear();
+
+        UserOrderSummary summary = summaryRepository.findById(user.getId()).orElseThrow();
+        assertEquals(2, summary.getOrderCount());
+        assertEquals(150.0, summary.getTotalSpent());
+        assertEquals(second, summary.getLastOrderAt());
+    }
+
+    @Test
+    void rebuildRange_shouldRecomputeSummaryFromOrders() {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        for (int i = 1; i <= 3; i++) {
+            entityManager.persist(new Order(null, user, new ArrayList<>(), 10.0 * i, OrderStatus.PAID, createdAt.plusSeconds(i)));
+        }
+        // A stale summary that the rebuild must replace
+        summaryRepository.recordOrder(user.getId(), 999.0, createdAt);
+
+        summaryRepository.deleteRange(0, user.getId() + 1);
+        int rebuilt = summaryRepository.insertRange(0, user.getId() + 1);
+        entityManager.clear();
+
+        assertEquals(1, rebuilt);
+        assertEquals(user.getId().longValue(), summaryRepository.findMaxOrderUserId());
+        UserOrderSummary summary = summaryRepository.findById(user.getId()).orElseThrow();
+        assertEquals(3, summary.getOrderCount());
+        assertEquals(60.0, summary.getTotalSpent());
+        assertEquals(createdAt.plusSeconds(3), summary.getLastOrderAt());
+    }
+
+    @Test
+    void rebuildRange_shouldLeaveOutFailedOrders() {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        entityManager.persist(new Order(null, user, new ArrayList<>(), 10.0, OrderStatus.PAID, createdAt));
+        entityManager.persist(new Order(null, user, new ArrayList<>(), 20.0, OrderStatus.PENDING, createdAt.plusSeconds(1)));
+        entityManager.persist(new Order(null, user, new ArrayList<>(), 40.0, OrderStatus.PAYMENT_FAILED, createdAt.plusSeconds(2)));
+
+        summaryRepository.insertRange(0, user.getId() + 1);
+        entityManager.clear();
+
+        UserOrderSummary summary = summaryRepository.findById(user.getId()).orElseThrow();
+        assertEquals(2, summary.getOrderCount());
+        assertEquals(30.0, summary.getTotalSpent());
+        assertEquals(createdAt.plusSeconds(1), summary.getLastOrderAt());
+    }
+
+    @Test
+    void rebuildRange_shouldCountOrdersWithoutStatus() {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        // Placed before orders had a payment status
+        entityManager.persist(new Order(null, user, new ArrayList<>(), 25.0, null, createdAt));
+        entityManager.persist(new Order(null, user, new ArrayList<>(), 10.0, OrderStatus.PAID, createdAt.plusSeconds(1)));
+        entityManager.persist(new Order(null, user, new ArrayList<>(), 40.0, OrderStatus.PAYMENT_FAILED, createdAt.plusSeconds(2)));
+
+        summaryRepository.deleteRange(0, user.getId() + 1);
+        summaryRepository.insertRange(0, user.getId() + 1);
+        entityManager.clear();
+
+        UserOrderSummary summary = summaryRepository.findById(user.getId()).orElseThrow();
+        assertEquals(2, summary.getOrderCount());
+        assertEquals(35.0, summary.getTotalSpent());
+        assertEquals(createdAt.plusSeconds(1), summary.getLastOrderAt());
+    }
+
+    @Test
+    void removeOrder_shouldTakeFailedOrderOutOfSummary() {
+        Instant createdAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        entityManager.persist(new Order(null, user, new ArrayList<>(), 10.0, OrderStatus.PAID, createdAt));
+        // The failed order is the latest one and has already moved to PAYMENT_FAILED
+        entityManager.persist(new Order(null, user, new ArrayList<>(), 40.0, OrderStatus.PAYMENT_FAILED, createdAt.plusSeconds(1)));
+        summaryRepository.recordOrder(user.getId(), 10.0, createdAt);
+        summaryRepository.recordOrder(user.getId(), 40.0, createdAt.plusSeconds(1));
+        entityManager.flush();
+
+        int updated = summaryRepository.removeOrder(user.getId(), 40.0);
+        entityManager.clear();
+
+        assertEquals(1, updated);
+        UserOrderSummary summary = summaryRepository.findById(user.getId()).orElseThrow();
+        assertEquals(1, summary.getOrderCount());
+        assertEquals(10.0, summary.getTotalSpent());
+        assertEquals(createdAt, summary.getLastOrderAt());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.configuration.AuthenticatedUser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthTokenServiceTest {
+
+    private final AuthTokenService authTokenService =
+            new AuthTokenService(new ObjectMapper(), true, Duration.ofHours(1), "test-secret");
+
+    @Test
+    void verify_shouldAcceptIssuedTokens() {
+        AuthTokenService.IssuedToken issued = authTokenService.issue(login("user"));
+
+        Authentication authentication = authTokenService.verify(issued.token());
+
+        assertNotNull(authentication);
+        assertEquals("user", authentication.getName());
+        assertEquals(7L, ((AuthenticatedUser) authentication.getPrincipal()).getUserId());
+        assertEquals(AuthorityUtils.createAuthorityList("ROLE_USER"), authentication.getAuthorities());
+        assertInstanceOf(AuthTokenService.TokenDetails.class, authentication.getDetails());
+    }
+
+    @Test
+    void verify_shouldRejectTamperedAndForeignTokens() {
+        String token = authTokenService.issue(login("user")).token();
+        String otherSecret = new AuthTokenService(new ObjectMapper(), true, Duration.ofHours(1), "other-secret")
+                .issue(login("admin")).token();
+        String payloadOfOther = otherSecret.substring(0, otherSecret.indexOf('.'));
+
+        assertNull(authTokenService.verify(payloadOfOther + token.substring(token.indexOf('.'))));
+        assertNull(authTokenService.verify(otherSecret));
+        assertNull(authTokenService.verify("not-a-token"));
+    }
+
+    @Test
+    void verify_shouldRejectExpiredTokens() {
+        AuthTokenService expiring = new AuthTokenService(new ObjectMapper(), true, Duration.ZERO, "test-secret");
+
+        assertNull(expiring.verify(expiring.issue(login("user")).token()));
+    }
+
+    @Test
+    void revoke_shouldRejectTokensIssuedBefore() throws InterruptedException {
+        String token = authTokenService.issue(login("user")).token();
+        Thread.sleep(5);
+
+        authTokenService.revoke("user");
+
+        assertNull(authTokenService.verify(token));
+    }
+
+    private static Authentication login(String username) {
+        AuthenticatedUser principal = new AuthenticatedUser(7L, username, "",
+                AuthorityUtils.createAuthorityList(username.equals("admin") ? "ROLE_ADMIN" : "ROLE_USER"));
+        return UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities());
+    }
+}
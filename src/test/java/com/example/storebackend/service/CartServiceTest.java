@@ -1,29 +1,32 @@
 package com.example.storebackend.service;
 
+import com.example.storebackend.dto.CartLineView;
+import com.example.storebackend.model.Cart;
 import com.example.storebackend.model.CartItem;
 import com.example.storebackend.model.Product;
+import com.example.storebackend.repository.CartStore;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.mock.web.MockHttpSession;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 class CartServiceTest {
+    private static final String USERNAME = "user";
 
     @Mock
     private ProductService productService;
 
-    @InjectMocks
-    private CartService cartService;
+    private InMemoryCartStore cartStore;
 
-    private MockHttpSession session;
+    private CartService cartService;
 
     private Product testProduct;
 
@@ -32,7 +35,8 @@ class CartServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        session = new MockHttpSession();
+        cartStore = new InMemoryCartStore();
+        cartService = new CartService(productService, cartStore);
 
         testProduct = new Product(1L, "Test Product", 100.0, 10);
 
@@ -46,14 +50,13 @@ class CartServiceTest {
 
         when(productService.getProductById(productId)).thenReturn(testProduct);
 
-        cartService.addItemToCart(productId, quantity, session);
+        cartService.addItemToCart(productId, quantity, USERNAME);
 
-        List<CartItem> cart = (List<CartItem>) session.getAttribute("cart");
+        Cart cart = cartStore.carts.get(USERNAME);
 
         assertNotNull(cart);
         assertEquals(1, cart.size());
-        assertEquals(cartItem.getProductId(), cart.get(0).getProductId());
-        assertEquals(cartItem.getQuantity(), cart.get(0).getQuantity());
+        assertEquals(cartItem.getQuantity(), cart.get(cartItem.getProductId()));
 
         verify(productService, times(1)).getProductById(productId);
     }
@@ -67,25 +70,31 @@ class CartServiceTest {
         when(productService.getProductById(productId)).thenReturn(testProduct);
 
         // Simulate an existing cart with an item
-        CartItem existingItem = new CartItem(productId, initialQuantity);
+        cartStore.carts.put(USERNAME, cartOf(new CartItem(productId, initialQuantity)));
 
-        session.setAttribute("cart", List.of(existingItem));
+        cartService.addItemToCart(productId, additionalQuantity, USERNAME);
 
-        cartService.addItemToCart(productId, additionalQuantity, session);
-
-        List<CartItem> cart = (List<CartItem>) session.getAttribute("cart");
+        Cart cart = cartStore.carts.get(USERNAME);
 
         assertNotNull(cart);
         assertEquals(1, cart.size());
-        assertEquals(productId, cart.get(0).getProductId());
-        assertEquals(initialQuantity + additionalQuantity, cart.get(0).getQuantity());
+        assertEquals(initialQuantity + additionalQuantity, cart.get(productId));
 
         verify(productService, times(1)).getProductById(productId);
     }
 
+    @Test
+    void addItemToCart_shouldNotTouchCartWhenProductNotFound() {
+        when(productService.getProductById(1L)).thenThrow(new IllegalArgumentException("Product not found"));
+
+        assertThrows(IllegalArgumentException.class, () -> cartService.addItemToCart(1L, 2, USERNAME));
+
+        assertFalse(cartStore.carts.containsKey(USERNAME));
+    }
+
     @Test
     void viewCart_shouldReturnEmptyListWhenCartIsNull() {
-        List<CartItem> cart = cartService.viewCart(session);
+        List<CartItem> cart = cartService.viewCart(USERNAME);
 
         assertNotNull(cart);
         assertTrue(cart.isEmpty());
@@ -93,9 +102,9 @@ class CartServiceTest {
 
     @Test
     void viewCart_shouldReturnExistingCart() {
-        session.setAttribute("cart", List.of(cartItem));
+        cartStore.carts.put(USERNAME, cartOf(cartItem));
 
-        List<CartItem> cart = cartService.viewCart(session);
+        List<CartItem> cart = cartService.viewCart(USERNAME);
 
         assertNotNull(cart);
         assertEquals(1, cart.size());
@@ -104,53 +113,109 @@ class CartServiceTest {
     }
 
     @Test
-    void removeItemFromCart_shouldRemoveItemIfItExists() {
-        session.setAttribute("cart", new ArrayList<>(List.of(cartItem)));
+    void viewCart_shouldKeepCartsOfUsersApart() {
+        cartStore.carts.put("other", cartOf(cartItem));
 
-        cartService.removeItemFromCart(cartItem.getProductId(), session);
+        assertTrue(cartService.viewCart(USERNAME).isEmpty());
+    }
+
+    @Test
+    void removeItemFromCart_shouldRemoveItemIfItExists() {
+        cartStore.carts.put(USERNAME, cartOf(cartItem));
 
-        List<CartItem> cart = (List<CartItem>) session.getAttribute("cart");
+        cartService.removeItemFromCart(cartItem.getProductId(), USERNAME);
 
-        assertNotNull(cart);
-        assertTrue(cart.isEmpty());
+        // An emptied cart is removed from the store
+        assertFalse(cartStore.carts.containsKey(USERNAME));
     }
 
     @Test
     void removeItemFromCart_shouldDoNothingIfCartIsEmpty() {
-        cartService.removeItemFromCart(1L, session);
-
-        List<CartItem> cart = (List<CartItem>) session.getAttribute("cart");
+        cartService.removeItemFromCart(1L, USERNAME);
 
-        assertNull(cart); // No cart was set, so it should remain null
+        assertNull(cartStore.carts.get(USERNAME)); // No cart was stored, so there should still be none
     }
 
     @Test
     void getCartProducts_shouldReturnPopulatedProductsList() {
-        when(productService.getProductById(testProduct.getId())).thenReturn(testProduct);
+        when(productService.getProductsByIds(List.of(testProduct.getId()))).thenReturn(Map.of(1L, testProduct));
 
-        session.setAttribute("cart", List.of(cartItem));
+        cartStore.carts.put(USERNAME, cartOf(cartItem));
 
-        List<Product> products = cartService.getCartProducts(session);
+        List<CartLineView> lines = cartService.getCartProducts(USERNAME);
 
-        assertNotNull(products);
-        assertEquals(1, products.size());
-        assertEquals(cartItem.getProductId(), products.get(0).getId());
-        assertEquals(cartItem.getQuantity(), products.get(0).getStock());
+        assertNotNull(lines);
+        assertEquals(1, lines.size());
+        assertEquals(cartItem.getProductId(), lines.get(0).productId());
+        assertEquals(cartItem.getQuantity(), lines.get(0).quantity());
+        assertEquals(200.0, lines.get(0).lineTotal());
+        // The catalog product itself is left untouched
+        assertEquals(10, testProduct.getStock());
 
-        verify(productService, times(1)).getProductById(testProduct.getId());
+        verify(productService, times(1)).getProductsByIds(List.of(testProduct.getId()));
     }
 
     @Test
-    void getCartProducts_shouldThrowExceptionIfProductNotFound() {
-        Long productId = 1L;
+    void getCartProducts_shouldFetchAllLinesWithOneLookup() {
+        Cart cart = new Cart();
+        Map<Long, Product> products = new HashMap<>();
+        for (long productId = 1; productId <= 50; productId++) {
+            cart.add(productId, 1);
+            products.put(productId, new Product(productId, "Product " + productId, 10.0, 10));
+        }
+        cartStore.carts.put(USERNAME, cart);
+        when(productService.getProductsByIds(anyCollection())).thenReturn(products);
+
+        List<CartLineView> lines = cartService.getCartProducts(USERNAME);
+
+        assertEquals(50, lines.size());
+        verify(productService, times(1)).getProductsByIds(anyCollection());
+        verify(productService, never()).getProductById(anyLong());
+    }
 
-        session.setAttribute("cart", List.of(cartItem));
+    @Test
+    void getCartProducts_shouldThrowExceptionIfProductNotFound() {
+        cartStore.carts.put(USERNAME, cartOf(cartItem));
 
-        when(productService.getProductById(productId)).thenThrow(new RuntimeException("Product not found"));
+        when(productService.getProductsByIds(anyCollection())).thenReturn(Map.of());
 
-        RuntimeException exception = assertThrows(RuntimeException.class, () -> cartService.getCartProducts(session));
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> cartService.getCartProducts(USERNAME));
 
         assertEquals("Something went wrong", exception.getMessage());
-        verify(productService, times(1)).getProductById(productId);
+    }
+
+    private static Cart cartOf(CartItem... items) {
+        Cart cart = new Cart();
+        for (CartItem item : items) {
+            cart.add(item.getProductId(), item.getQuantity());
+        }
+        return cart;
+    }
+
+    // Keeps carts in a map, with the same empty-cart semantics as the file store
+    private static class InMemoryCartStore implements CartStore {
+        private final Map<String, Cart> carts = new HashMap<>();
+
+        @Override
+        public Cart load(String username) {
+            return carts.getOrDefault(username, new Cart());
+        }
+
+        @Override
+        public Cart update(String username, Consumer<Cart> mutation) {
+            Cart cart = load(username);
+            mutation.accept(cart);
+            if (cart.isEmpty()) {
+                carts.remove(username);
+            } else {
+                carts.put(username, cart);
+            }
+            return cart;
+        }
+
+        @Override
+        public void delete(String username) {
+            carts.remove(username);
+        }
     }
 }
@@ -0,0 +1,113 @@
+package com.example.storebackend.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class GroupCommitExecutorTest {
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private GroupCommitExecutor groupCommitExecutor;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (groupCommitExecutor != null) {
+            groupCommitExecutor.shutdown();
+        }
+    }
+
+    @Test
+    void commit_shouldRunBatchInOneTransactionAndFailOnlyRejectedUnits() {
+        groupCommitExecutor = new GroupCommitExecutor(transactionManager, false, 64, Duration.ofMillis(5), 100);
+        GroupCommitExecutor.Unit<String> first = new GroupCommitExecutor.Unit<>(() -> "first");
+        GroupCommitExecutor.Unit<String> rejected = new GroupCommitExecutor.Unit<>(() -> {
+            throw new IllegalArgumentException("Not enough stock for product P");
+        });
+        GroupCommitExecutor.Unit<String> third = new GroupCommitExecutor.Unit<>(() -> "third");
+
+        groupCommitExecutor.commit(List.of(first, rejected, third));
+
+        assertEquals("first", first.result().join());
+        assertEquals("third", third.result().join());
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> rejected.result().get());
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(transactionManager, times(1)).commit(any());
+    }
+
+    @Test
+    void commit_shouldRetryEachUnitAloneWhenBatchFails() {
+        groupCommitExecutor = new GroupCommitExecutor(transactionManager, false, 64, Duration.ofMillis(5), 100);
+        AtomicInteger calls = new AtomicInteger();
+        GroupCommitExecutor.Unit<String> flaky = new GroupCommitExecutor.Unit<>(() -> {
+            if (calls.incrementAndGet() == 1) {
+                throw new IllegalStateException("deadlock");
+            }
+            return "flaky";
+        });
+        GroupCommitExecutor.Unit<String> other = new GroupCommitExecutor.Unit<>(() -> "other");
+
+        groupCommitExecutor.commit(List.of(other, flaky));
+
+        assertEquals("other", other.result().join());
+        assertEquals("flaky", flaky.result().join());
+        // One batch transaction that rolled back, then one transaction per unit
+        verify(transactionManager, times(1)).rollback(any());
+        verify(transactionManager, times(3)).getTransaction(any());
+    }
+
+    @Test
+    void execute_shouldGroupConcurrentCallersIntoFewerCommits() throws Exception {
+        groupCommitExecutor = new GroupCommitExecutor(transactionManager, true, 64, Duration.ofMillis(200), 100);
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int value = i;
+                results.add(callers.submit(() -> groupCommitExecutor.execute(() -> value)));
+            }
+            for (int i = 0; i < 8; i++) {
+                assertEquals(i, results.get(i).get());
+            }
+        } finally {
+            callers.shutdown();
+        }
+        verify(transactionManager, atMost(7)).commit(any());
+    }
+
+    @Test
+    void execute_withoutGroupCommitShouldUseOneTransactionPerCall() {
+        groupCommitExecutor = new GroupCommitExecutor(transactionManager, false, 64, Duration.ofMillis(5), 100);
+
+        assertEquals("done", groupCommitExecutor.execute(() -> "done"));
+        assertThrows(IllegalArgumentException.class, () -> groupCommitExecutor.execute(() -> {
+            throw new IllegalArgumentException("rejected");
+        }));
+
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager, times(1)).rollback(any());
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.model.CartItem;
+import com.example.storebackend.model.IdempotencyKey;
+import com.example.storebackend.model.Order;
+import com.example.storebackend.model.OrderStatus;
+import com.example.storebackend.repository.IdempotencyKeyRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotencyService idempotencyService;
+    private List<CartItem> cart;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(orderService, idempotencyKeyRepository, meterRegistry, 100, Duration.ofHours(24));
+        cart = List.of(new CartItem(1L, 2));
+        order = new Order(5L, null, null, 200.0, OrderStatus.PENDING, null);
+    }
+
+    @Test
+    void checkout_shouldCreateOrderOnceAndReplayRepeats() {
+        when(idempotencyKeyRepository.findById("1:abc")).thenReturn(Optional.empty());
+        when(orderService.createOrder(cart, 1L, "1:abc")).thenReturn(order);
+        when(orderService.getOrderById(5L)).thenReturn(order);
+
+        IdempotencyService.Checkout first = idempotencyService.checkout(cart, 1L, "abc");
+        IdempotencyService.Checkout repeat = idempotencyService.checkout(cart, 1L, "abc");
+
+        assertFalse(first.replayed());
+        assertTrue(repeat.replayed());
+        assertSame(order, repeat.order());
+        verify(orderService, times(1)).createOrder(cart, 1L, "1:abc");
+        // The repeat is answered from the cache
+        verify(idempotencyKeyRepository, times(1)).findById("1:abc");
+        assertEquals(1.0, meterRegistry.counter("store.checkout.idempotency", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("store.checkout.idempotency", "result", "miss").count());
+    }
+
+    @Test
+    void checkout_shouldReplayKeyStoredInDatabase() {
+        when(idempotencyKeyRepository.findById("1:abc"))
+                .thenReturn(Optional.of(new IdempotencyKey("1:abc", 5L, Instant.now())));
+        when(orderService.getOrderById(5L)).thenReturn(order);
+
+        IdempotencyService.Checkout checkout = idempotencyService.checkout(cart, 1L, "abc");
+
+        assertTrue(checkout.replayed());
+        verify(orderService, never()).createOrder(anyList(), anyLong(), anyString());
+    }
+
+    @Test
+    void checkout_shouldReplayOrderOfConcurrentRequestWithSameKey() {
+        when(idempotencyKeyRepository.findById("1:abc"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new IdempotencyKey("1:abc", 5L, Instant.now())));
+        when(orderService.createOrder(cart, 1L, "1:abc")).thenThrow(new DataIntegrityViolationException("duplicate key"));
+        when(orderService.getOrderById(5L)).thenReturn(order);
+
+        IdempotencyService.Checkout checkout = idempotencyService.checkout(cart, 1L, "abc");
+
+        assertTrue(checkout.replayed());
+        assertEquals(5L, checkout.order().getId());
+    }
+
+    @Test
+    void checkout_shouldScopeKeysToUser() {
+        when(idempotencyKeyRepository.findById(anyString())).thenReturn(Optional.empty());
+        when(orderService.createOrder(cart, 2L, "2:abc")).thenReturn(order);
+
+        IdempotencyService.Checkout checkout = idempotencyService.checkout(cart, 2L, "abc");
+
+        assertFalse(checkout.replayed());
+        verify(idempotencyKeyRepository, times(1)).findById("2:abc");
+    }
+
+    @Test
+    void checkout_withoutKeyShouldAlwaysCreateOrder() {
+        when(orderService.createOrder(cart, 1L)).thenReturn(order);
+
+        IdempotencyService.Checkout checkout = idempotencyService.checkout(cart, 1L, null);
+
+        assertFalse(checkout.replayed());
+        verifyNoInteractions(idempotencyKeyRepository);
+    }
+
+    @Test
+    void checkout_shouldRejectOverlongKey() {
+        assertThrows(IllegalArgumentException.class,
+                () -> idempotencyService.checkout(cart, 1L, "k".repeat(IdempotencyService.MAX_KEY_LENGTH + 1)));
+    }
+}
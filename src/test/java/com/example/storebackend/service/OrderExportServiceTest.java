@@ -0,0 +1,73 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.OrderItemRow;
+import com.example.storebackend.dto.OrderRow;
+import com.example.storebackend.repository.OrderItemRepository;
+import com.example.storebackend.repository.OrderRepository;
+import com.example.storebackend.model.OrderStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OrderExportServiceTest {
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    private OrderExportService orderExportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        orderExportService = new OrderExportService(orderRepository,
+                new OrderViewService(orderRepository, orderItemRepository, 100, 1000), new ObjectMapper(), 2);
+    }
+
+    @Test
+    void exportOrders_shouldWriteOneLinePerOrderWithItems() throws Exception {
+        when(orderRepository.findRowsAfter(0L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(new OrderRow(1L, 7L, 300.0, OrderStatus.PAID), new OrderRow(2L, 7L, 50.0, OrderStatus.PAID)));
+        when(orderRepository.findRowsAfter(2L, PageRequest.of(0, 2)))
+                .thenReturn(List.of(new OrderRow(3L, 8L, 20.0, OrderStatus.PAID)));
+        when(orderItemRepository.findRowsByOrderIds(List.of(1L, 2L)))
+                .thenReturn(List.of(new OrderItemRow(1L, 10L, 3, 100.0), new OrderItemRow(2L, 11L, 1, 50.0)));
+        when(orderItemRepository.findRowsByOrderIds(List.of(3L)))
+                .thenReturn(List.of());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = orderExportService.exportOrders(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(3, exported);
+        assertEquals(3, lines.length);
+        assertEquals("{\"id\":1,\"userId\":7,\"totalPrice\":300.0,\"status\":\"PAID\",\"orderItems\":[{\"productId\":10,\"quantity\":3,\"price\":100.0}]}", lines[0]);
+        assertEquals("{\"id\":3,\"userId\":8,\"totalPrice\":20.0,\"status\":\"PAID\",\"orderItems\":[]}", lines[2]);
+        // The last batch was not full, so there is no further query
+        verify(orderRepository, times(2)).findRowsAfter(anyLong(), any());
+    }
+
+    @Test
+    void exportOrders_shouldWriteNothingWhenThereAreNoOrders() throws Exception {
+        when(orderRepository.findRowsAfter(0L, PageRequest.of(0, 2))).thenReturn(List.of());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = orderExportService.exportOrders(out);
+
+        assertEquals(0, exported);
+        assertEquals(0, out.size());
+        verifyNoInteractions(orderItemRepository);
+    }
+}
@@ -1,18 +1,23 @@
 package com.example.storebackend.service;
 
+import com.example.storebackend.dto.UserAccount;
 import com.example.storebackend.model.*;
+import com.example.storebackend.repository.IdempotencyKeyRepository;
 import com.example.storebackend.repository.OrderRepository;
 import com.example.storebackend.repository.ProductRepository;
-import com.example.storebackend.repository.UserRepository;
+import com.example.storebackend.repository.UserOrderSummaryRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -28,34 +33,52 @@ public class OrderServiceTest {
     private ProductRepository productRepository;
 
     @Mock
-    private UserRepository userRepository;
+    private UserAccountCache userAccountCache;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private ProductCatalogCache catalogCache;
+
+    @Mock
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Mock
+    private GroupCommitExecutor groupCommitExecutor;
+
+    @Mock
+    private UserOrderSummaryRepository userOrderSummaryRepository;
 
     @InjectMocks
     private OrderService orderService;
 
-    private User user;
+    private UserAccount account;
     private Product product1, product2;
     private CartItem cartItem1, cartItem2;
 
     @BeforeEach
     public void setUp() {
-        user = new User("testUser", "password");
-        user.setId(1L);
+        account = new UserAccount(1L, "testUser", "password", Role.USER);
 
         product1 = new Product(1L, "Product1", 100.0, 10);
         product2 = new Product(2L, "Product2", 200.0, 5);
 
         cartItem1 = new CartItem(1L, 3); // product1, quantity 3
         cartItem2 = new CartItem(2L, 2); // product2, quantity 2
+
+        // Run the write step directly, as a one-order transaction would
+        lenient().when(groupCommitExecutor.execute(any())).thenAnswer(invocation ->
+                invocation.<java.util.function.Supplier<?>>getArgument(0).get());
     }
 
     @Test
     public void testCreateOrder_Success() {
         List<CartItem> cartItems = Arrays.asList(cartItem1, cartItem2);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(productRepository.findById(1L)).thenReturn(java.util.Optional.of(product1));
-        when(productRepository.findById(2L)).thenReturn(java.util.Optional.of(product2));
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(product1, product2));
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(1);
         when(orderRepository.save(any(Order.class))).thenReturn(new Order());
 
         Order order = orderService.createOrder(cartItems, 1L);
@@ -64,8 +87,36 @@ public class OrderServiceTest {
         assertEquals(1L, order.getUser().getId());
         assertEquals(2, order.getOrderItems().size());
         assertEquals(700.0, order.getTotalPrice()); // (3 * 100) + (2 * 200)
-        verify(userRepository, times(1)).findById(1L);
-        verify(productRepository, times(1)).findById(1L);
+        assertEquals(OrderStatus.PENDING, order.getStatus());
+        verify(userOrderSummaryRepository, times(1)).recordOrder(1L, 700.0, order.getCreatedAt());
+        verify(userAccountCache, times(1)).getById(1L);
+        verify(productRepository, times(1)).findAllById(anyIterable());
+        verify(productRepository, times(1)).decrementStock(1L, 3);
+        verify(productRepository, times(1)).decrementStock(2L, 2);
+        verify(productRepository, never()).findById(anyLong());
+        verify(orderRepository, times(1)).save(any(Order.class));
+    }
+
+    @Test
+    public void testCreateOrder_ProductQueriesDoNotGrowWithCartSize() {
+        List<Product> products = new ArrayList<>();
+        List<CartItem> cartItems = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            products.add(new Product(id, "Product" + id, 10.0, 5));
+            cartItems.add(new CartItem(id, 1));
+        }
+
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(products);
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(1);
+
+        Order order = orderService.createOrder(cartItems, 1L);
+
+        assertEquals(40, order.getOrderItems().size());
+        verify(productRepository, times(1)).findAllById(anyIterable());
+        verify(productRepository, times(40)).decrementStock(anyLong(), anyInt());
+        verify(productRepository, never()).findById(anyLong());
+        verify(productRepository, never()).save(any(Product.class));
         verify(orderRepository, times(1)).save(any(Order.class));
     }
 
@@ -73,7 +124,7 @@ public class OrderServiceTest {
     void testCreateOrder_UserNotFound() {
         List<CartItem> cartItems = Arrays.asList(cartItem1, cartItem2);
 
-        when(userRepository.findById(1L)).thenReturn(java.util.Optional.empty());
+        when(userAccountCache.getById(1L)).thenReturn(null);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             orderService.createOrder(cartItems, 1L);
@@ -86,8 +137,8 @@ public class OrderServiceTest {
     public void testCreateOrder_ProductNotFound() {
         List<CartItem> cartItems = Arrays.asList(cartItem1, cartItem2);
 
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(product2));
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             orderService.createOrder(cartItems, 1L);
@@ -97,23 +148,82 @@ public class OrderServiceTest {
 
     @Test
     public void testCreateOrder_InsufficientStock() {
-        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(productRepository.findById(1L)).thenReturn(Optional.of(product1));
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(product1));
 
-        // Set the product stock to 1, while cart requires 3
-        product1.setStock(1);
+        // The conditional update finds less stock than the cart requires
+        when(productRepository.decrementStock(1L, 3)).thenReturn(0);
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             orderService.createOrder(Arrays.asList(cartItem1), 1L);
         });
         assertTrue(exception.getMessage().contains("Not enough stock"));
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    public void testCreateOrder_InsufficientStockGivesBackStockAlreadyTaken() {
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(product1, product2));
+        when(productRepository.decrementStock(1L, 3)).thenReturn(1);
+        when(productRepository.decrementStock(2L, 2)).thenReturn(0);
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
+            orderService.createOrder(Arrays.asList(cartItem1, cartItem2), 1L);
+        });
+        assertEquals("Not enough stock for product Product2", exception.getMessage());
+        // Undone in place so a shared group-commit transaction can still commit the other orders
+        verify(productRepository, times(1)).incrementStock(1L, 3);
+        verify(orderRepository, never()).save(any(Order.class));
+    }
+
+    @Test
+    public void testCreateOrder_DuplicateLinesAreDecrementedOnce() {
+        CartItem sameProductAgain = new CartItem(1L, 2);
+
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(product1));
+        when(productRepository.decrementStock(1L, 5)).thenReturn(1);
+
+        Order order = orderService.createOrder(Arrays.asList(cartItem1, sameProductAgain), 1L);
+
+        assertEquals(500.0, order.getTotalPrice());
+        verify(productRepository, times(1)).decrementStock(1L, 5);
+    }
+
+    @Test
+    public void testCreateOrder_TakesStockInProductIdOrder() {
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(product1, product2));
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(1);
+
+        // Cart order is product2, product1; rows must still be locked as product1, product2
+        orderService.createOrder(Arrays.asList(cartItem2, cartItem1), 1L);
+
+        InOrder inOrder = inOrder(productRepository);
+        inOrder.verify(productRepository).decrementStock(1L, 3);
+        inOrder.verify(productRepository).decrementStock(2L, 2);
+    }
+
+    @Test
+    public void testCreateOrder_UsesReservationEngineWhenEnabled() {
+        when(stockReservationService.isEnabled()).thenReturn(true);
+        when(stockReservationService.reserveAll(Map.of(1L, 3))).thenReturn(null);
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(product1));
+
+        Order order = orderService.createOrder(Arrays.asList(cartItem1), 1L);
+
+        assertEquals(300.0, order.getTotalPrice());
+        verify(stockReservationService, times(1)).reserveAll(Map.of(1L, 3));
+        verify(productRepository, never()).decrementStock(anyLong(), anyInt());
     }
 
     @Test
     public void testGetOrderById_Success() {
-        Order order = new Order(1L, user, null, 200.0);
+        Order order = new Order(1L, new User("testUser", "password"), null, 200.0, OrderStatus.PAID, null);
 
-        when(orderRepository.findById(1L)).thenReturn(Optional.of(order));
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
 
         Order result = orderService.getOrderById(1L);
 
@@ -123,7 +233,7 @@ public class OrderServiceTest {
 
     @Test
     public void testGetOrderById_NotFound() {
-        when(orderRepository.findById(1L)).thenReturn(Optional.empty());
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.empty());
 
         IllegalArgumentException exception = assertThrows(IllegalArgumentException.class, () -> {
             orderService.getOrderById(1L);
@@ -132,40 +242,78 @@ public class OrderServiceTest {
     }
 
     @Test
-    public void testGetUserOrders_Success() {
-        List<Order> orders = Arrays.asList(new Order(1L, user, null, 200.0));
+    public void testCompletePayment_OnlyMovesPendingOrders() {
+        when(orderRepository.updateStatus(1L, OrderStatus.PENDING, OrderStatus.PAID)).thenReturn(1);
+        when(orderRepository.updateStatus(2L, OrderStatus.PENDING, OrderStatus.PAID)).thenReturn(0);
+
+        assertTrue(orderService.completePayment(1L, OrderStatus.PAID));
+        assertFalse(orderService.completePayment(2L, OrderStatus.PAID));
+    }
+
+    @Test
+    public void testCompletePayment_FailedOrderGivesStockBack() {
+        Order order = failedOrder();
+        when(orderRepository.updateStatus(1L, OrderStatus.PENDING, OrderStatus.PAYMENT_FAILED)).thenReturn(1);
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
+
+        assertTrue(orderService.completePayment(1L, OrderStatus.PAYMENT_FAILED));
+
+        InOrder inOrder = inOrder(productRepository);
+        inOrder.verify(productRepository).incrementStock(1L, 4);
+        inOrder.verify(productRepository).incrementStock(2L, 2);
+        verify(catalogCache, times(1)).invalidateAll(Set.of(1L, 2L));
+        verify(stockReservationService, never()).releaseAll(any());
+        verify(userOrderSummaryRepository, times(1)).removeOrder(1L, 700.0);
+    }
 
-        when(orderRepository.findByUserId(user.getId())).thenReturn(orders);
+    @Test
+    public void testCompletePayment_FailedOrderReleasesReservations() {
+        Order order = failedOrder();
+        when(stockReservationService.isEnabled()).thenReturn(true);
+        when(orderRepository.updateStatus(1L, OrderStatus.PENDING, OrderStatus.PAYMENT_FAILED)).thenReturn(1);
+        when(orderRepository.findWithItemsById(1L)).thenReturn(Optional.of(order));
 
-        List<Order> userOrders = orderService.getUserOrders(user.getId());
+        assertTrue(orderService.completePayment(1L, OrderStatus.PAYMENT_FAILED));
 
-        assertNotNull(userOrders);
-        assertFalse(userOrders.isEmpty());
-        assertEquals(1L, orders.get(0).getId());
+        verify(stockReservationService, times(1)).releaseAll(Map.of(1L, 4, 2L, 2));
+        verify(productRepository, never()).incrementStock(anyLong(), anyInt());
     }
 
     @Test
-    public void testGetUserOrders_NotFound() {
-        when(orderRepository.findByUserId(1L)).thenReturn(Arrays.asList());
+    public void testCompletePayment_PaidOrNotPendingKeepsStock() {
+        when(orderRepository.updateStatus(1L, OrderStatus.PENDING, OrderStatus.PAID)).thenReturn(1);
+        when(orderRepository.updateStatus(2L, OrderStatus.PENDING, OrderStatus.PAYMENT_FAILED)).thenReturn(0);
 
-        List<Order> orders = orderService.getUserOrders(1L);
+        orderService.completePayment(1L, OrderStatus.PAID);
+        orderService.completePayment(2L, OrderStatus.PAYMENT_FAILED);
 
-        assertNotNull(orders);
-        assertTrue(orders.isEmpty());
+        verify(orderRepository, never()).findWithItemsById(anyLong());
+        verify(productRepository, never()).incrementStock(anyLong(), anyInt());
+        verify(stockReservationService, never()).releaseAll(any());
+        verify(userOrderSummaryRepository, never()).removeOrder(anyLong(), anyDouble());
     }
 
     @Test
-    public void testGetOrders_Success() {
-        List<Order> orders = Arrays.asList(new Order(1L, user, null, 200.0));
+    public void testCreateOrder_RecordsRequestKey() {
+        when(userAccountCache.getById(1L)).thenReturn(account);
+        when(productRepository.findAllById(anyIterable())).thenReturn(Arrays.asList(product1));
+        when(productRepository.decrementStock(anyLong(), anyInt())).thenReturn(1);
 
-        when(orderRepository.findAll()).thenReturn(orders);
+        orderService.createOrder(Arrays.asList(cartItem1), 1L, "1:abc");
 
-        List<Order> allOrders = orderService.getOrders();
+        ArgumentCaptor<IdempotencyKey> key = ArgumentCaptor.forClass(IdempotencyKey.class);
+        verify(idempotencyKeyRepository, times(1)).save(key.capture());
+        assertEquals("1:abc", key.getValue().getRequestKey());
+    }
 
-        // Assert: Verify the result
-        assertNotNull(allOrders);
-        assertEquals(1, allOrders.size());
-        assertEquals(1L, allOrders.get(0).getId());
+    // Order 1 with product 2 once and product 1 twice, so the stock is summed and sorted
+    private Order failedOrder() {
+        User user = new User("testUser", "password", Role.USER);
+        user.setId(1L);
+        Order order = new Order(1L, user, new ArrayList<>(), 700.0, OrderStatus.PAYMENT_FAILED, null);
+        order.getOrderItems().add(OrderItem.builder().order(order).productId(2L).quantity(2).price(200.0).build());
+        order.getOrderItems().add(OrderItem.builder().order(order).productId(1L).quantity(3).price(100.0).build());
+        order.getOrderItems().add(OrderItem.builder().order(order).productId(1L).quantity(1).price(100.0).build());
+        return order;
     }
 }
-
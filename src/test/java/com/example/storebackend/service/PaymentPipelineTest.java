@@ -0,0 +1,136 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.OrderRow;
+import com.example.storebackend.model.Order;
+import com.example.storebackend.model.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PaymentPipelineTest {
+
+    @Mock
+    private PaymentService paymentService;
+
+    @Mock
+    private OrderService orderService;
+
+    private PaymentPipeline paymentPipeline;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        paymentPipeline = new PaymentPipeline(paymentService, orderService, 2, 10, 3, Duration.ofMillis(1), Duration.ofMillis(5),
+                Duration.ofMinutes(5));
+        order = new Order(1L, null, null, 100.0, OrderStatus.PENDING, null);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        paymentPipeline.shutdown();
+    }
+
+    @Test
+    void submit_shouldMarkOrderPaidWhenPaymentSucceeds() {
+        when(paymentService.processPayment(order)).thenReturn(true);
+
+        paymentPipeline.submit(order);
+
+        verify(orderService, timeout(1000)).completePayment(1L, OrderStatus.PAID);
+        verify(paymentService, times(1)).processPayment(order);
+    }
+
+    @Test
+    void submit_shouldRetryDeclinedAndFailedAttempts() {
+        when(paymentService.processPayment(order))
+                .thenReturn(false)
+                .thenThrow(new RuntimeException("provider timeout"))
+                .thenReturn(true);
+
+        paymentPipeline.submit(order);
+
+        verify(orderService, timeout(1000)).completePayment(1L, OrderStatus.PAID);
+        verify(paymentService, times(3)).processPayment(order);
+    }
+
+    @Test
+    void submit_shouldMarkOrderFailedAfterLastAttempt() {
+        when(paymentService.processPayment(any(Order.class))).thenReturn(false);
+
+        paymentPipeline.submit(order);
+
+        verify(orderService, timeout(1000)).completePayment(1L, OrderStatus.PAYMENT_FAILED);
+        verify(paymentService, times(3)).processPayment(order);
+        verify(orderService, never()).completePayment(1L, OrderStatus.PAID);
+    }
+
+    @Test
+    void submit_shouldLeaveOrderPendingWhenQueueIsFull() throws InterruptedException {
+        PaymentPipeline small = new PaymentPipeline(paymentService, orderService, 1, 1, 1, Duration.ofMillis(1), Duration.ofMillis(5),
+                Duration.ofMinutes(5));
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentService.processPayment(any(Order.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        try {
+            assertTrue(small.submit(new Order(1L, null, null, 10.0, OrderStatus.PENDING, null)));
+            verify(paymentService, timeout(1000)).processPayment(any(Order.class));
+            assertTrue(small.submit(new Order(2L, null, null, 10.0, OrderStatus.PENDING, null)));
+
+            // One running and one queued: the third is not run on this thread
+            assertFalse(small.submit(new Order(3L, null, null, 10.0, OrderStatus.PENDING, null)));
+            verify(paymentService, times(1)).processPayment(any(Order.class));
+        } finally {
+            release.countDown();
+            small.shutdown();
+        }
+        verify(orderService, never()).completePayment(3L, OrderStatus.PAID);
+    }
+
+    @Test
+    void resubmitStalePayments_shouldPayOrdersPendingTooLong() {
+        when(orderService.getPendingOrdersCreatedBefore(any(Instant.class), anyInt()))
+                .thenReturn(List.of(new OrderRow(7L, 1L, 50.0, OrderStatus.PENDING)));
+        when(paymentService.processPayment(any(Order.class))).thenReturn(true);
+
+        paymentPipeline.resubmitStalePayments();
+
+        verify(orderService, timeout(1000)).completePayment(7L, OrderStatus.PAID);
+        verify(orderService).getPendingOrdersCreatedBefore(
+                argThat(before -> before.isBefore(Instant.now().minus(Duration.ofMinutes(4)))), eq(10));
+    }
+
+    @Test
+    void resubmitStalePayments_shouldSkipOrdersAlreadyQueued() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        when(paymentService.processPayment(any(Order.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        when(orderService.getPendingOrdersCreatedBefore(any(Instant.class), anyInt()))
+                .thenReturn(List.of(new OrderRow(1L, 1L, 100.0, OrderStatus.PENDING)));
+
+        paymentPipeline.submit(order);
+        verify(paymentService, timeout(1000)).processPayment(any(Order.class));
+        paymentPipeline.resubmitStalePayments();
+        release.countDown();
+
+        verify(orderService, timeout(1000)).completePayment(1L, OrderStatus.PAID);
+        paymentPipeline.shutdown();
+        verify(paymentService, times(1)).processPayment(any(Order.class));
+    }
+}
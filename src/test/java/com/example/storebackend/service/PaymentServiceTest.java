@@ -1,27 +1,39 @@
 package com.example.storebackend.service;
 
 import com.example.storebackend.model.Order;
+import com.example.storebackend.model.OrderStatus;
 import com.example.storebackend.model.User;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
-import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
-@ExtendWith(MockitoExtension.class)
 class PaymentServiceTest {
 
-    @InjectMocks
-    private PaymentService paymentService;
+    private final Order mockOrder = new Order(1L, new User("testUser", "password"), null, 200.0, OrderStatus.PENDING, null);
 
     @Test
     void testProcessPayment_Success() {
-       Order mockOrder = new Order(1L, new User("testUser", "password"), null, 200.0);
+        PaymentService paymentService = new PaymentService(Duration.ZERO, 0.0);
 
         boolean result = paymentService.processPayment(mockOrder);
 
         assertTrue(result, "Payment should be processed successfully.");
     }
+
+    @Test
+    void testProcessPayment_SimulatedFailure() {
+        PaymentService paymentService = new PaymentService(Duration.ZERO, 1.0);
+
+        assertFalse(paymentService.processPayment(mockOrder), "Every payment should be declined.");
+    }
+
+    @Test
+    void testInvalidFailureRate() {
+        assertThrows(IllegalArgumentException.class, () -> new PaymentService(Duration.ZERO, 1.5));
+    }
 }
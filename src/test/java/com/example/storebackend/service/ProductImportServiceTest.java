@@ -0,0 +1,169 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.ProductImportError;
+import com.example.storebackend.dto.ProductImportResult;
+import com.example.storebackend.model.Product;
+import com.example.storebackend.repository.ProductRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ProductImportServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ProductCatalogCache catalogCache;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductImportService productImportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        productImportService = new ProductImportService(productRepository, jdbcTemplate, transactionManager, catalogCache,
+                stockReservationService, new ObjectMapper(), meterRegistry, 2, 100);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importProducts_shouldInsertCsvRowsInChunks() throws Exception {
+        String csv = "name,price,stock\n" +
+                "\"Desk, oak\",120.5,3\n" +
+                "Lamp,15,10\n" +
+                "Chair,40,7\n";
+
+        ProductImportResult result = productImportService.importProducts(stream(csv), ProductImportService.Format.CSV);
+
+        assertEquals(3, result.rows());
+        assertEquals(3, result.inserted());
+        assertEquals(0, result.failed());
+        ArgumentCaptor<List<Product>> inserted = ArgumentCaptor.forClass(List.class);
+        // Two chunks of at most two rows, one transaction each
+        verify(productRepository, times(2)).saveAll(inserted.capture());
+        assertEquals("Desk, oak", inserted.getAllValues().get(0).get(0).getName());
+        assertEquals(1, inserted.getAllValues().get(1).size());
+        verify(transactionManager, times(2)).commit(any());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertEquals(3.0, meterRegistry.counter("store.products.import.rows", "result", "inserted").count());
+    }
+
+    @Test
+    void importProducts_shouldReportInvalidRowsByLine() throws Exception {
+        String csv = "id,name,price,stock\n" +
+                ",Lamp,abc,10\n" +
+                ",,15,10\n" +
+                ",Chair,40,-1\n" +
+                ",Desk,120,3\n";
+
+        ProductImportResult result = productImportService.importProducts(stream(csv), ProductImportService.Format.CSV);
+
+        assertEquals(4, result.rows());
+        assertEquals(1, result.inserted());
+        assertEquals(3, result.failed());
+        assertEquals(List.of(2L, 3L, 4L), result.errors().stream().map(ProductImportError::line).toList());
+        assertEquals("Name is required.", result.errors().get(1).message());
+    }
+
+    @Test
+    void importProducts_shouldRejectNonFinitePrices() throws Exception {
+        String csv = "name,price,stock\n" +
+                "Lamp,NaN,10\n" +
+                "Desk,Infinity,3\n";
+
+        ProductImportResult result = productImportService.importProducts(stream(csv), ProductImportService.Format.CSV);
+
+        assertEquals(0, result.inserted());
+        assertEquals(2, result.failed());
+        assertEquals("Price must be zero or more.", result.errors().get(0).message());
+        verify(productRepository, never()).saveAll(anyList());
+    }
+
+    @Test
+    void importProducts_shouldRetryFailedChunkRowByRow() throws Exception {
+        String csv = "name,price,stock\n" +
+                "Lamp,15,10\n" +
+                "Desk,120,3\n";
+        when(productRepository.saveAll(anyList()))
+                .thenThrow(new RuntimeException("Mock constraint violation"))
+                .thenReturn(List.of())
+                .thenThrow(new RuntimeException("Mock constraint violation"));
+
+        ProductImportResult result = productImportService.importProducts(stream(csv), ProductImportService.Format.CSV);
+
+        // The chunk, then each of its rows on its own
+        verify(productRepository, times(3)).saveAll(anyList());
+        assertEquals(1, result.inserted());
+        assertEquals(1, result.failed());
+        assertEquals(3L, result.errors().get(0).line());
+        assertEquals("Could not be written: Mock constraint violation", result.errors().get(0).message());
+    }
+
+    @Test
+    void importProducts_shouldUpdateNdjsonRowsWithIdsInOneBatch() throws Exception {
+        String ndjson = "{\"id\":1,\"name\":\"Lamp\",\"price\":15.0,\"stock\":10}\n" +
+                "{\"id\":99,\"name\":\"Ghost\",\"price\":1.0,\"stock\":1}\n" +
+                "not json\n";
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        ProductImportResult result = productImportService.importProducts(stream(ndjson), ProductImportService.Format.NDJSON);
+
+        assertEquals(3, result.rows());
+        assertEquals(1, result.updated());
+        assertEquals(2, result.failed());
+        assertEquals(new ProductImportError(2, "Product not found."), result.errors().get(0));
+        verify(jdbcTemplate, times(1)).batchUpdate(eq("UPDATE product SET name = ?, price = ?, stock = ? WHERE id = ?"), anyList());
+        verify(catalogCache, times(1)).invalidateAll(List.of(1L, 99L));
+    }
+
+    @Test
+    void importProducts_shouldSetStockThroughReservationsWhenEnabled() throws Exception {
+        String ndjson = "{\"id\":1,\"name\":\"Lamp\",\"price\":15.0,\"stock\":10}\n" +
+                "{\"id\":99,\"name\":\"Ghost\",\"price\":1.0,\"stock\":1}\n";
+        when(stockReservationService.isEnabled()).thenReturn(true);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0});
+
+        ProductImportResult result = productImportService.importProducts(stream(ndjson), ProductImportService.Format.NDJSON);
+
+        assertEquals(1, result.updated());
+        assertEquals(1, result.failed());
+        verify(jdbcTemplate, times(1)).batchUpdate(eq("UPDATE product SET name = ?, price = ? WHERE id = ?"), anyList());
+        verify(stockReservationService, times(1)).setStock(1L, 10);
+        verify(stockReservationService, never()).setStock(eq(99L), anyInt());
+    }
+
+    @Test
+    void importProducts_shouldRejectCsvWithoutRequiredColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> productImportService.importProducts(stream("name,price\nLamp,15\n"), ProductImportService.Format.CSV));
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
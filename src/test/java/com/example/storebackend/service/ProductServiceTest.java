@@ -1,16 +1,23 @@
 package com.example.storebackend.service;
 
+import com.example.storebackend.dto.ProductView;
 import com.example.storebackend.model.Product;
 import com.example.storebackend.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -20,7 +27,6 @@ class ProductServiceTest {
     @Mock
     private ProductRepository productRepository;
 
-    @InjectMocks
     private ProductService productService;
 
     private Product testProduct;
@@ -30,6 +36,8 @@ class ProductServiceTest {
         testProduct = new Product(null, "Test Product", 100.0, 10);
 
         MockitoAnnotations.openMocks(this);
+        ProductCatalogCache catalogCache = new ProductCatalogCache(100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        productService = new ProductService(productRepository, catalogCache, 100, 1000);
     }
 
     @Test
@@ -61,50 +69,77 @@ class ProductServiceTest {
     }
 
     @Test
-    void getAllProducts_shouldReturnListOfProducts() {
+    void getProductsPage_shouldReturnProductsAfterCursor() {
         // Arrange
-        Product product1 = new Product(1L, "Product 1", 50.0, 20);
-        Product product2 = new Product(2L, "Product 2", 75.0, 15);
+        ProductView product2 = new ProductView(2L, "Product 2", 50.0, 20);
+        ProductView product3 = new ProductView(3L, "Product 3", 75.0, 15);
 
-        List<Product> products = List.of(product1, product2);
-        when(productRepository.findAll()).thenReturn(products);
+        List<ProductView> products = List.of(product2, product3);
+        when(productRepository.findViewsAfter(1L, PageRequest.of(0, 2))).thenReturn(products);
 
         // Act
-        List<Product> result = productService.getAllProducts();
+        List<ProductView> result = productService.getProductsPage(1L, 2);
 
         // Assert
         assertNotNull(result);
         assertEquals(2, result.size());
-        assertEquals(product1.getName(), result.get(0).getName());
-        verify(productRepository, times(1)).findAll();
+        assertEquals(product2.name(), result.get(0).name());
+        verify(productRepository, times(1)).findViewsAfter(1L, PageRequest.of(0, 2));
+    }
+
+    @Test
+    void getProductsPage_shouldStartFromBeginningWithDefaultSize() {
+        // Arrange
+        when(productRepository.findViewsAfter(0L, PageRequest.of(0, 100))).thenReturn(Collections.emptyList());
+
+        // Act
+        List<ProductView> result = productService.getProductsPage(null, null);
+
+        // Assert
+        assertNotNull(result);
+        assertTrue(result.isEmpty());
+        verify(productRepository, times(1)).findViewsAfter(0L, PageRequest.of(0, 100));
+    }
+
+    @Test
+    void getProductsPage_shouldCapPageSize() {
+        // Arrange
+        when(productRepository.findViewsAfter(0L, PageRequest.of(0, 1000))).thenReturn(Collections.emptyList());
+
+        // Act
+        productService.getProductsPage(0L, 1_000_000);
+
+        // Assert
+        verify(productRepository, times(1)).findViewsAfter(0L, PageRequest.of(0, 1000));
     }
 
     @Test
-    void getAllProducts_shouldThrowRuntimeExceptionWhenRepositoryFails() {
+    void getProductsPage_shouldThrowRuntimeExceptionWhenRepositoryFails() {
         // Arrange
-        when(productRepository.findAll()).thenThrow(new RuntimeException("Mock database error"));
+        when(productRepository.findViewsAfter(0L, PageRequest.of(0, 100)))
+                .thenThrow(new RuntimeException("Mock database error"));
 
         // Act & Assert
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
-            productService.getAllProducts();
+            productService.getProductsPage(null, null);
         });
 
-        assertEquals("Error getting all products", exception.getMessage());
-        verify(productRepository, times(1)).findAll();
+        assertEquals("Error getting products", exception.getMessage());
     }
 
     @Test
-    void getAllProducts_shouldReturnEmptyListWhenNoProductsExist() {
+    void streamAllProducts_shouldHandEveryProductToConsumer() {
         // Arrange
-        when(productRepository.findAll()).thenReturn(Collections.emptyList());
+        ProductView product1 = new ProductView(1L, "Product 1", 50.0, 20);
+        ProductView product2 = new ProductView(2L, "Product 2", 75.0, 15);
+        when(productRepository.streamAllViews()).thenReturn(Stream.of(product1, product2));
+        List<ProductView> consumed = new ArrayList<>();
 
         // Act
-        List<Product> result = productService.getAllProducts();
+        productService.streamAllProducts(consumed::add);
 
         // Assert
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
-        verify(productRepository, times(1)).findAll();
+        assertEquals(List.of(product1, product2), consumed);
     }
 
     @Test
@@ -136,6 +171,90 @@ class ProductServiceTest {
         verify(productRepository, times(1)).findById(1L);
     }
 
+    @Test
+    void getProductById_shouldServeRepeatedReadsFromCache() {
+        // Arrange
+        testProduct.setId(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+
+        // Act
+        productService.getProductById(1L);
+        Product result = productService.getProductById(1L);
+
+        // Assert
+        assertEquals(testProduct.getName(), result.getName());
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void getProductsByIds_shouldLoadAllMissesWithOneQuery() {
+        // Arrange
+        Product product1 = new Product(1L, "Product 1", 50.0, 20);
+        Product product2 = new Product(2L, "Product 2", 75.0, 15);
+        Product product3 = new Product(3L, "Product 3", 25.0, 5);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(product1));
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of(product2, product3));
+        productService.getProductById(1L);
+
+        // Act
+        Map<Long, Product> result = productService.getProductsByIds(List.of(1L, 2L, 3L));
+
+        // Assert
+        assertEquals(3, result.size());
+        assertSame(product1, result.get(1L));
+        ArgumentCaptor<Iterable<Long>> loadedIds = ArgumentCaptor.forClass(Iterable.class);
+        verify(productRepository, times(1)).findAllById(loadedIds.capture());
+        List<Long> loaded = new ArrayList<>();
+        loadedIds.getValue().forEach(loaded::add);
+        assertEquals(2, loaded.size());
+        assertFalse(loaded.contains(1L)); // Already cached
+    }
+
+    @Test
+    void getProductsByIds_shouldLeaveOutUnknownProducts() {
+        // Arrange
+        when(productRepository.findAllById(anyIterable())).thenReturn(List.of());
+
+        // Act
+        Map<Long, Product> result = productService.getProductsByIds(List.of(9L));
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    void deleteProductById_shouldInvalidateCachedProduct() {
+        // Arrange
+        testProduct.setId(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        productService.getProductById(1L);
+
+        // Act
+        productService.deleteProductById(1L);
+        when(productRepository.findById(1L)).thenReturn(Optional.empty());
+
+        // Assert
+        assertThrows(IllegalArgumentException.class, () -> productService.getProductById(1L));
+        verify(productRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    void addProduct_shouldInvalidateCachedProduct() {
+        // Arrange
+        testProduct.setId(1L);
+        Product updatedProduct = new Product(1L, "Updated Product", 120.0, 10);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(testProduct));
+        productService.getProductById(1L);
+
+        // Act
+        when(productRepository.save(updatedProduct)).thenReturn(updatedProduct);
+        productService.addProduct(updatedProduct);
+        when(productRepository.findById(1L)).thenReturn(Optional.of(updatedProduct));
+
+        // Assert
+        assertEquals("Updated Product", productService.getProductById(1L).getName());
+    }
+
     @Test
     void deleteProductById_shouldDeleteProductSuccessfully() {
         // Arrange
@@ -0,0 +1,137 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.ProductSales;
+import com.example.storebackend.dto.SalesReport;
+import com.example.storebackend.model.OrderStatus;
+import com.example.storebackend.repository.OrderItemRepository;
+import com.example.storebackend.repository.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SalesAnalyticsServiceTest {
+
+    @Mock
+    private OrderItemRepository orderItemRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    private SalesAnalyticsService salesAnalyticsService;
+    private LocalDate today;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        salesAnalyticsService = new SalesAnalyticsService(orderItemRepository, orderRepository, Duration.ZERO, 31, 1000);
+        today = LocalDate.now(ZoneOffset.UTC);
+    }
+
+    @Test
+    void refresh_shouldRollUpOneQueryPerDay() {
+        Instant twoDaysAgo = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS).plusSeconds(3600);
+        when(orderRepository.findFirstCreatedAt()).thenReturn(twoDaysAgo);
+        when(orderItemRepository.findSalesBetween(any(), any())).thenReturn(List.of(
+                new ProductSales(1L, 2L, 20.0),
+                new ProductSales(2L, 5L, 10.0)));
+
+        salesAnalyticsService.refresh();
+
+        // The two days before today in full, then today so far
+        verify(orderItemRepository, times(3)).findSalesBetween(any(), any());
+        verify(orderItemRepository).findSalesBetween(
+                twoDaysAgo.truncatedTo(ChronoUnit.DAYS), twoDaysAgo.truncatedTo(ChronoUnit.DAYS).plus(1, ChronoUnit.DAYS));
+        SalesReport report = salesAnalyticsService.getTopProducts(today.minusDays(2), today.plusDays(1), 10,
+                SalesAnalyticsService.Metric.REVENUE);
+        assertEquals(List.of(new ProductSales(1L, 6L, 60.0), new ProductSales(2L, 15L, 30.0)), report.products());
+        assertTrue(report.dataUntil().isAfter(report.from()));
+    }
+
+    @Test
+    void refresh_shouldContinueFromWhereTheLastRunStopped() throws InterruptedException {
+        when(orderRepository.findFirstCreatedAt()).thenReturn(Instant.now().truncatedTo(ChronoUnit.DAYS));
+        when(orderItemRepository.findSalesBetween(any(), any()))
+                .thenReturn(List.of(new ProductSales(1L, 1L, 5.0)))
+                .thenReturn(List.of(new ProductSales(1L, 2L, 10.0), new ProductSales(3L, 9L, 9.0)));
+
+        salesAnalyticsService.refresh();
+        // Leave a non-empty window for the second run
+        Thread.sleep(5);
+        salesAnalyticsService.refresh();
+
+        verify(orderRepository, times(1)).findFirstCreatedAt();
+        assertEquals(new ProductSales(1L, 3L, 15.0), salesAnalyticsService.getProductSales(1L, today, today.plusDays(1)));
+        SalesReport byUnits = salesAnalyticsService.getTopProducts(today, today.plusDays(1), 1,
+                SalesAnalyticsService.Metric.UNITS);
+        assertEquals(List.of(new ProductSales(3L, 9L, 9.0)), byUnits.products());
+    }
+
+    @Test
+    void refresh_shouldStopAtOldestPendingOrder() {
+        Instant dayStart = Instant.now().truncatedTo(ChronoUnit.DAYS).minus(2, ChronoUnit.DAYS);
+        Instant pendingSince = dayStart.plus(1, ChronoUnit.DAYS).plusSeconds(600);
+        when(orderRepository.findFirstCreatedAt()).thenReturn(dayStart);
+        when(orderRepository.findFirstCreatedAtByStatus(OrderStatus.PENDING)).thenReturn(pendingSince);
+        when(orderItemRepository.findSalesBetween(any(), any())).thenReturn(List.of(new ProductSales(1L, 1L, 5.0)));
+
+        salesAnalyticsService.refresh();
+
+        // The first day in full, the next one only up to the pending order
+        verify(orderItemRepository, times(2)).findSalesBetween(any(), any());
+        verify(orderItemRepository).findSalesBetween(dayStart.plus(1, ChronoUnit.DAYS), pendingSince);
+        SalesReport report = salesAnalyticsService.getTopProducts(today.minusDays(2), today.plusDays(1), 10,
+                SalesAnalyticsService.Metric.REVENUE);
+        assertEquals(pendingSince, report.dataUntil());
+
+        // Once the order settles, the next refresh picks up from there
+        when(orderRepository.findFirstCreatedAtByStatus(OrderStatus.PENDING)).thenReturn(null);
+        salesAnalyticsService.refresh();
+
+        verify(orderItemRepository).findSalesBetween(pendingSince, dayStart.plus(2, ChronoUnit.DAYS));
+        verify(orderRepository, times(1)).findFirstCreatedAt();
+    }
+
+    @Test
+    void refresh_shouldDoNothingWithoutOrders() {
+        salesAnalyticsService.refresh();
+
+        verifyNoInteractions(orderItemRepository);
+        SalesReport report = salesAnalyticsService.getTopProducts(today, today.plusDays(1), 10,
+                SalesAnalyticsService.Metric.REVENUE);
+        assertTrue(report.products().isEmpty());
+        assertEquals(report.from(), report.dataUntil());
+    }
+
+    @Test
+    void getSales_shouldQueryTheDatabase() {
+        Instant from = Instant.parse("2024-01-01T10:00:00Z");
+        Instant to = Instant.parse("2024-01-01T12:00:00Z");
+        when(orderItemRepository.findTopSalesBetween(eq(from), eq(to), any()))
+                .thenReturn(List.of(new ProductSales(4L, 1L, 99.0)));
+
+        SalesReport report = salesAnalyticsService.getSales(from, to, 5);
+
+        assertEquals(List.of(new ProductSales(4L, 1L, 99.0)), report.products());
+        assertEquals(to, report.dataUntil());
+    }
+
+    @Test
+    void getTopProducts_shouldRejectInvalidWindowsAndLimits() {
+        assertThrows(IllegalArgumentException.class, () -> salesAnalyticsService.getTopProducts(today, today, 10,
+                SalesAnalyticsService.Metric.REVENUE));
+        assertThrows(IllegalArgumentException.class, () -> salesAnalyticsService.getTopProducts(today, today.plusDays(1), 0,
+                SalesAnalyticsService.Metric.REVENUE));
+    }
+}
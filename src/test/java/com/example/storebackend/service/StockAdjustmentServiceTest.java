@@ -0,0 +1,101 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.StockAdjustment;
+import com.example.storebackend.dto.StockAdjustmentResult;
+import com.example.storebackend.dto.StockLevel;
+import com.example.storebackend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class StockAdjustmentServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private StockReservationService stockReservationService;
+
+    @Mock
+    private ProductCatalogCache catalogCache;
+
+    private StockAdjustmentService stockAdjustmentService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        stockAdjustmentService = new StockAdjustmentService(productRepository, jdbcTemplate, transactionManager,
+                stockReservationService, catalogCache, 1000);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void adjustStock_shouldCoalesceDeltasIntoOneBatch() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 0, 0});
+        when(productRepository.findStockLevels(List.of(1L, 2L, 3L)))
+                .thenReturn(List.of(new StockLevel(1L, 15), new StockLevel(2L, 1)));
+
+        StockAdjustmentResult result = stockAdjustmentService.adjustStock(List.of(
+                new StockAdjustment(3L, 4),
+                new StockAdjustment(1L, 10),
+                new StockAdjustment(2L, -5),
+                new StockAdjustment(1L, -3)));
+
+        // Applied in product id order, whatever the order of the request
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertEquals(3, batch.getValue().size());
+        assertArrayEquals(new Object[]{7, 1L, 7}, batch.getValue().get(0));
+        assertArrayEquals(new Object[]{-5, 2L, -5}, batch.getValue().get(1));
+        assertArrayEquals(new Object[]{4, 3L, 4}, batch.getValue().get(2));
+        assertEquals(List.of(new StockLevel(1L, 15)), result.levels());
+        assertEquals(List.of(2L), result.insufficientStock());
+        assertEquals(List.of(3L), result.notFound());
+        verify(catalogCache, times(1)).invalidateAll(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    void adjustStock_shouldUseReservationEngineWhenEnabled() {
+        when(stockReservationService.isEnabled()).thenReturn(true);
+        when(stockReservationService.loadAll(List.of(1L, 2L, 3L))).thenReturn(Set.of(1L, 2L));
+        when(stockReservationService.adjust(1L, 5)).thenReturn(true);
+        when(stockReservationService.available(1L)).thenReturn(12);
+        when(stockReservationService.adjust(2L, -9)).thenReturn(false);
+
+        StockAdjustmentResult result = stockAdjustmentService.adjustStock(List.of(
+                new StockAdjustment(1L, 5),
+                new StockAdjustment(2L, -9),
+                new StockAdjustment(3L, 1)));
+
+        assertEquals(List.of(new StockLevel(1L, 12)), result.levels());
+        assertEquals(List.of(2L), result.insufficientStock());
+        assertEquals(List.of(3L), result.notFound());
+        // Counters are loaded once for the chunk, and unknown products are never adjusted
+        verify(stockReservationService, times(1)).loadAll(anyCollection());
+        verify(stockReservationService, never()).adjust(eq(3L), anyInt());
+        verifyNoInteractions(jdbcTemplate);
+    }
+
+    @Test
+    void adjustStock_shouldRejectMissingProductId() {
+        assertThrows(IllegalArgumentException.class,
+                () -> stockAdjustmentService.adjustStock(List.of(new StockAdjustment(null, 1))));
+    }
+}
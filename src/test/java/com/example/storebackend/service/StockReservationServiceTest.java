@@ -0,0 +1,139 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.StockLevel;
+import com.example.storebackend.model.Product;
+import com.example.storebackend.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class StockReservationServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ProductCatalogCache catalogCache;
+
+    private StockReservationService stockReservationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        stockReservationService = new StockReservationService(productRepository, jdbcTemplate, transactionManager, catalogCache, true);
+
+        when(productRepository.findById(1L)).thenReturn(Optional.of(new Product(1L, "Test Product", 100.0, 10)));
+    }
+
+    @Test
+    void reserve_shouldGrantWhileStockIsAvailable() {
+        assertTrue(stockReservationService.reserve(1L, 6));
+        assertTrue(stockReservationService.reserve(1L, 4));
+        assertFalse(stockReservationService.reserve(1L, 1));
+
+        assertEquals(0, stockReservationService.available(1L));
+        // The counter is loaded from the database only once
+        verify(productRepository, times(1)).findById(1L);
+    }
+
+    @Test
+    void reserve_shouldThrowIllegalArgumentExceptionWhenProductNotFound() {
+        when(productRepository.findById(2L)).thenReturn(Optional.empty());
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> stockReservationService.reserve(2L, 1));
+
+        assertEquals("Product not found.", exception.getMessage());
+    }
+
+    @Test
+    void loadAll_shouldLoadMissingCountersWithOneQuery() {
+        stockReservationService.reserve(1L, 4);
+        when(productRepository.findStockLevels(List.of(2L, 3L))).thenReturn(List.of(new StockLevel(2L, 7)));
+
+        Set<Long> loaded = stockReservationService.loadAll(List.of(1L, 2L, 3L));
+
+        assertEquals(Set.of(1L, 2L), loaded);
+        assertEquals(6, stockReservationService.available(1L));
+        assertEquals(7, stockReservationService.available(2L));
+        verify(productRepository, never()).findById(2L);
+    }
+
+    @Test
+    void release_shouldMakeStockAvailableAgain() {
+        stockReservationService.reserve(1L, 10);
+        stockReservationService.release(1L, 3);
+
+        assertEquals(3, stockReservationService.available(1L));
+    }
+
+    @Test
+    void setStock_shouldReplaceAvailableStockAndFlushTheDifference() {
+        stockReservationService.reserve(1L, 4);
+        stockReservationService.setStock(1L, 20);
+        stockReservationService.reserve(1L, 5);
+
+        assertEquals(15, stockReservationService.available(1L));
+        stockReservationService.flush();
+
+        // 10 in the table, so 15 needs +5
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertArrayEquals(new Object[]{5, 1L}, batch.getValue().get(0));
+    }
+
+    @Test
+    void flush_shouldWriteNetDeltasInOneBatch() {
+        stockReservationService.reserve(1L, 5);
+        stockReservationService.release(1L, 2);
+
+        stockReservationService.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertEquals(1, batch.getValue().size());
+        assertArrayEquals(new Object[]{-3, 1L}, batch.getValue().get(0));
+        verify(catalogCache, times(1)).invalidateAll(List.of(1L));
+    }
+
+    @Test
+    void flush_shouldDoNothingWithoutPendingDeltas() {
+        stockReservationService.reserve(1L, 5);
+        stockReservationService.flush();
+        stockReservationService.flush();
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void flush_shouldKeepDeltasWhenWriteFails() {
+        stockReservationService.reserve(1L, 4);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenThrow(new RuntimeException("Mock database error"));
+
+        stockReservationService.flush();
+
+        reset(jdbcTemplate);
+        stockReservationService.flush();
+
+        ArgumentCaptor<List<Object[]>> batch = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), batch.capture());
+        assertArrayEquals(new Object[]{-4, 1L}, batch.getValue().get(0));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.storebackend.service;
+
+import com.example.storebackend.dto.UserAccount;
+import com.example.storebackend.model.Role;
+import com.example.storebackend.model.User;
+import com.example.storebackend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class UserAccountCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserAccountCache userAccountCache;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        userAccountCache = new UserAccountCache(userRepository, 100, Duration.ofMinutes(5), new SimpleMeterRegistry());
+        user = new User("alice", "hash");
+        user.setId(7L);
+    }
+
+    @Test
+    void getByUsername_shouldAlsoCacheTheUserById() {
+        when(userRepository.findByUsername("alice")).thenReturn(user);
+
+        UserAccount byName = userAccountCache.getByUsername("alice");
+        UserAccount byId = userAccountCache.getById(7L);
+        userAccountCache.getByUsername("alice");
+
+        assertEquals(new UserAccount(7L, "alice", "hash", Role.USER), byName);
+        assertEquals(byName, byId);
+        verify(userRepository, times(1)).findByUsername("alice");
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void getById_shouldReturnNullForUnknownUsers() {
+        when(userRepository.findById(8L)).thenReturn(Optional.empty());
+
+        assertNull(userAccountCache.getById(8L));
+        assertNull(userAccountCache.getById(8L));
+        // Misses are not cached
+        verify(userRepository, times(2)).findById(8L);
+    }
+
+    @Test
+    void invalidate_shouldDropBothKeys() {
+        when(userRepository.findByUsername("alice")).thenReturn(user);
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+        userAccountCache.getByUsername("alice");
+
+        userAccountCache.invalidate("alice");
+        userAccountCache.getByUsername("alice");
+        userAccountCache.invalidate("alice");
+        userAccountCache.getById(7L);
+
+        verify(userRepository, times(2)).findByUsername("alice");
+        verify(userRepository, times(1)).findById(7L);
+    }
+}